@@ -0,0 +1,34 @@
+package jpashop.api;
+
+import jpashop.service.ItemContention;
+import jpashop.service.OptimisticRetryExecutor;
+import jpashop.service.OrderCancelResult;
+import jpashop.service.OrderCancelService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+@RestController
+@RequiredArgsConstructor
+public class ItemApiController {
+
+    private final OptimisticRetryExecutor optimisticRetryExecutor;
+    private final OrderCancelService orderCancelService;
+
+    @GetMapping("/api/items/contention")
+    public List<ItemContention> contention() {
+        return optimisticRetryExecutor.stats();
+    }
+
+    /**
+     * 상품 리콜. 상품이 들어 있는 주문 중 배송 완료 전인 주문을 모두 취소하고 재고를 되돌린다.
+     */
+    @PostMapping("/api/items/{itemId}/recall")
+    public OrderCancelResult recall(@PathVariable("itemId") Long itemId) {
+        return orderCancelService.cancelOrdersByItem(itemId);
+    }
+}
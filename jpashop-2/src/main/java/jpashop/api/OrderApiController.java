@@ -4,20 +4,50 @@ import jpashop.domain.Address;
 import jpashop.domain.Order;
 import jpashop.domain.OrderItem;
 import jpashop.domain.OrderStatus;
+import jpashop.exception.InvalidPageRequestException;
+import jpashop.idempotency.IdempotentExecutor;
+import jpashop.outbox.OrderOutboxRelay;
+import jpashop.outbox.OutboxStats;
+import jpashop.repository.OrderCursor;
 import jpashop.repository.OrderRepository;
 import jpashop.repository.OrderSearch;
+import jpashop.repository.order.query.OrderFlatAssembler;
 import jpashop.repository.order.query.OrderFlatDto;
-import jpashop.repository.order.query.OrderItemQueryDto;
 import jpashop.repository.order.query.OrderQueryDto;
 import jpashop.repository.order.query.OrderQueryRepository;
+import jpashop.repository.order.summary.OrderSummaryRepository;
+import jpashop.service.OrderCancelResult;
+import jpashop.service.OrderCancelService;
+import jpashop.service.OrderPipeline;
+import jpashop.service.OrderService;
+import jpashop.service.OrderTicket;
+import jpashop.service.OrderTicketStatus;
+import lombok.AllArgsConstructor;
+import lombok.Data;
 import lombok.Getter;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.util.StringUtils;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
+import javax.servlet.http.HttpServletResponse;
+import javax.validation.Valid;
+import javax.validation.constraints.NotEmpty;
+import javax.validation.constraints.NotNull;
+import javax.validation.constraints.Positive;
+import java.io.IOException;
 import java.time.LocalDateTime;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import static java.util.stream.Collectors.*;
 
@@ -25,8 +55,18 @@ import static java.util.stream.Collectors.*;
 @RequiredArgsConstructor
 public class OrderApiController {
 
+    //keyset 페이지 한 번에 읽을 수 있는 최대 주문 수
+    private static final int MAX_PAGE_LIMIT = 1000;
+
     private final OrderRepository orderRepository;
     private final OrderQueryRepository orderQueryRepository;
+    private final OrderSummaryRepository orderSummaryRepository;
+    private final OrderService orderService;
+    private final OrderPipeline orderPipeline;
+    private final OrderCancelService orderCancelService;
+    private final IdempotentExecutor idempotentExecutor;
+    private final OrderOutboxRelay orderOutboxRelay;
+    private final OrderNdjsonExporter orderNdjsonExporter;
 
     @GetMapping("/api/v1/orders")
     public List<Order> ordersV1() {
@@ -65,11 +105,37 @@ public class OrderApiController {
     public List<OrderDto> ordersV3_page(@RequestParam(value = "offset", defaultValue = "0") int offset,
                                         @RequestParam(value = "limit", defaultValue = "100") int limit) {
         List<Order> orders = orderRepository.findAllWithMemberDelivery(offset, limit);
-        List<OrderDto> collect = orders.stream()
-                .map(o -> new OrderDto(o))
-                .collect(toList());
+        return toOrderDtos(orders);
+    }
 
-        return collect;
+    @GetMapping("/api/v3.2/orders")
+    public OrderPage ordersV3_keyset(@RequestParam(value = "cursor", required = false) String cursor,
+                                     @RequestParam(value = "limit", defaultValue = "100") int limit) {
+        if (limit < 1 || limit > MAX_PAGE_LIMIT) {
+            throw new InvalidPageRequestException("limit 은 1 이상 " + MAX_PAGE_LIMIT + " 이하여야 합니다.");
+        }
+        OrderCursor after;
+        try {
+            after = cursor == null ? null : OrderCursor.decode(cursor);
+        } catch (IllegalArgumentException e) {
+            throw new InvalidPageRequestException(e.getMessage(), e);
+        }
+        List<Order> orders = orderRepository.findAllWithMemberDelivery(after, limit);
+        List<OrderDto> collect = toOrderDtos(orders);
+
+        String next = null;
+        if (!orders.isEmpty() && orders.size() == limit) {
+            Order last = orders.get(orders.size() - 1);
+            next = new OrderCursor(last.getOrderDate(), last.getId()).encode();
+        }
+        return new OrderPage(collect, next);
+    }
+
+    @GetMapping("/api/v3.3/orders")
+    public List<OrderDto> ordersV3_itemPage(@RequestParam(value = "offset", defaultValue = "0") int offset,
+                                            @RequestParam(value = "limit", defaultValue = "100") int limit) {
+        List<Order> orders = orderRepository.findAllWithItem(offset, limit);
+        return toOrderDtos(orders);
     }
 
     @GetMapping("/api/v4/orders")
@@ -82,22 +148,161 @@ public class OrderApiController {
         return orderQueryRepository.findAllByDto_optimization();
     }
 
+    @GetMapping("/api/v5.1/orders")
+    public List<OrderQueryDto> ordersV5_parallel() {
+        return orderQueryRepository.findAllByDto_parallel();
+    }
+
     @GetMapping("/api/v6/orders")
     public List<OrderQueryDto> ordersV6() {
         List<OrderFlatDto> flats = orderQueryRepository.findAllByDto_flat();
+        return OrderFlatAssembler.assemble(flats);
+    }
+
+    @GetMapping("/api/v7/orders")
+    public List<OrderQueryDto> ordersV7() {
+        return orderSummaryRepository.findOrderQueryDtos();
+    }
+
+    /**
+     * v5 와 같은 응답을 DTO 없이 ResultSet 에서 응답 스트림으로 바로 쓴다.
+     */
+    @GetMapping("/api/v8/orders")
+    public void ordersV8(HttpServletResponse response) throws IOException {
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setCharacterEncoding("UTF-8");
+        orderNdjsonExporter.exportJsonArray(response.getOutputStream());
+    }
+
+    /**
+     * 여러 상품을 한 주문으로.
+     * Idempotency-Key 헤더가 있으면 같은 회원이 같은 키, 같은 내용으로 다시 보낸 요청은 주문하지 않고 처음 주문 id 를 돌려준다.
+     * 같은 키로 내용이 다르면 422 로 거절한다.
+     */
+    @PostMapping("/api/v2/orders")
+    public CreateOrderResponse saveOrderV2(@RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey,
+                                           @RequestBody @Valid CreateOrderRequest request) {
+        Map<Long, Integer> itemCounts = new HashMap<>();
+        request.getItems().forEach(line -> itemCounts.merge(line.getItemId(), line.getCount(), Integer::sum));
+
+        Long id = StringUtils.hasText(idempotencyKey)
+                ? idempotentExecutor.executeOrder(request.getMemberId(), idempotencyKey, itemCounts,
+                        () -> orderService.order(request.getMemberId(), itemCounts))
+                : orderService.order(request.getMemberId(), itemCounts);
+        return new CreateOrderResponse(id);
+    }
+
+    /**
+     * 비동기 주문. 접수만 하고 바로 ticketId 를 돌려준다. 결과는 /api/v2/orders/tickets/{ticketId} 로 확인한다.
+     * jpashop.order-pipeline.enabled 가 꺼져 있으면 404.
+     * Idempotency-Key 헤더가 있으면 같은 요청을 다시 접수하지 않고 처음 ticket 을 돌려준다.
+     * 처음 ticket 이 ticket-ttl-millis 가 지나 사라졌으면 ticketId 만 돌려준다.
+     */
+    @PostMapping("/api/v2/orders/async")
+    public ResponseEntity<OrderTicketDto> saveOrderAsync(@RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey,
+                                                         @RequestBody @Valid CreateOrderRequest request) {
+        if (!orderPipeline.isEnabled()) {
+            return ResponseEntity.notFound().build();
+        }
+        Map<Long, Integer> itemCounts = new HashMap<>();
+        request.getItems().forEach(line -> itemCounts.merge(line.getItemId(), line.getCount(), Integer::sum));
 
-        return flats.stream()
-                .collect(groupingBy(o -> new OrderQueryDto(o.getOrderId(),
-                                o.getName(), o.getOrderDate(), o.getOrderStatus(), o.getAddress()),
-                        mapping(o -> new OrderItemQueryDto(o.getOrderId(),
-                                o.getItemName(), o.getOrderPrice(), o.getCount()), toList())
-                )).entrySet().stream()
-                .map(e -> new OrderQueryDto(e.getKey().getOrderId(),
-                        e.getKey().getName(), e.getKey().getOrderDate(), e.getKey().getOrderStatus(),
-                        e.getKey().getAddress(), e.getValue()))
+        if (!StringUtils.hasText(idempotencyKey)) {
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(new OrderTicketDto(orderPipeline.submit(request.getMemberId(), itemCounts)));
+        }
+        Long ticketId = idempotentExecutor.executeAsyncOrder(request.getMemberId(), idempotencyKey, itemCounts,
+                () -> orderPipeline.submit(request.getMemberId(), itemCounts).getTicketId());
+        OrderTicket ticket = orderPipeline.findTicket(ticketId);
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(ticket != null ? new OrderTicketDto(ticket) : new OrderTicketDto(ticketId));
+    }
+
+    @GetMapping("/api/v2/orders/tickets/{ticketId}")
+    public ResponseEntity<OrderTicketDto> orderTicket(@PathVariable("ticketId") Long ticketId) {
+        OrderTicket ticket = orderPipeline.findTicket(ticketId);
+        if (ticket == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(new OrderTicketDto(ticket));
+    }
+
+    /**
+     * 주문 일괄 취소. 배송 완료된 주문은 건너뛰고 refused 로 센다.
+     */
+    @PostMapping("/api/orders/cancel")
+    public OrderCancelResult cancelOrders(@RequestBody @Valid CancelOrdersRequest request) {
+        return orderCancelService.cancelOrders(request.getOrderIds());
+    }
+
+    @GetMapping("/api/orders/outbox-stats")
+    public OutboxStats outboxStats() {
+        return orderOutboxRelay.stats();
+    }
+
+    @Data
+    static class CreateOrderRequest {
+        @NotNull
+        private Long memberId;
+        @NotEmpty
+        private List<OrderLine> items;
+    }
+
+    @Data
+    static class OrderLine {
+        @NotNull
+        private Long itemId;
+        @Positive
+        private int count;
+    }
+
+    @Data
+    @AllArgsConstructor
+    static class CreateOrderResponse {
+        private Long id;
+    }
+
+    @Data
+    static class CancelOrdersRequest {
+        @NotEmpty
+        private List<Long> orderIds;
+    }
+
+    @Getter
+    static class OrderTicketDto {
+        private Long ticketId;
+        private OrderTicketStatus status;
+        private Long orderId;
+        private String error;
+
+        public OrderTicketDto(Long ticketId) {
+            this.ticketId = ticketId;
+        }
+
+        public OrderTicketDto(OrderTicket ticket) {
+            ticketId = ticket.getTicketId();
+            status = ticket.getStatus();
+            orderId = ticket.getOrderId();
+            error = ticket.getError();
+        }
+    }
+
+    /**
+     * 페이지 단위로 주문 금액 합계를 한 번에 조회해서 DTO 로 변환
+     */
+    private List<OrderDto> toOrderDtos(List<Order> orders) {
+        Map<Long, Integer> totalPrices = orderQueryRepository.findTotalPrices(
+                orders.stream().map(Order::getId).collect(toList()));
+        return orders.stream()
+                .map(o -> new OrderDto(o, totalPrices.getOrDefault(o.getId(), 0)))
                 .collect(toList());
     }
 
+    @Data
+    @AllArgsConstructor
+    static class OrderPage {
+        private List<OrderDto> data;
+        private String next;
+    }
+
     @Getter
     static class OrderDto {
         private Long orderId;
@@ -106,8 +311,13 @@ public class OrderApiController {
         private OrderStatus orderStatus;
         private Address address;
         private List<OrderItemDto> orderItems;
+        private int totalPrice;
 
         public OrderDto(Order order) {
+            this(order, order.getTotalPrice());
+        }
+
+        public OrderDto(Order order, int totalPrice) {
             orderId = order.getId();
             name = order.getMember().getName();
             orderDate = order.getOrderDate();
@@ -115,6 +325,7 @@ public class OrderApiController {
             orderItems = order.getOrderItems().stream()
                     .map(orderItem -> new OrderItemDto(orderItem))
                     .collect(toList());
+            this.totalPrice = totalPrice;
         }
     }
 
@@ -126,7 +337,7 @@ public class OrderApiController {
 
         public OrderItemDto(OrderItem orderItem) {
             itemName = orderItem.getItem().getName();
-            orderPrice = orderItem.getOrder().getTotalPrice();
+            orderPrice = orderItem.getOrderPrice();
             count = orderItem.getCount();
         }
     }
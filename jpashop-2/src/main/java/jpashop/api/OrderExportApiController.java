@@ -0,0 +1,22 @@
+package jpashop.api;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+@RestController
+@RequiredArgsConstructor
+public class OrderExportApiController {
+
+    private final OrderNdjsonExporter orderNdjsonExporter;
+
+    @GetMapping(value = "/api/export/orders", produces = "application/x-ndjson")
+    public void exportOrders(HttpServletResponse response) throws IOException {
+        response.setContentType("application/x-ndjson");
+        response.setCharacterEncoding("UTF-8");
+        orderNdjsonExporter.export(response.getOutputStream());
+    }
+}
@@ -0,0 +1,72 @@
+package jpashop.api;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import jpashop.service.OrderImportProgress;
+import jpashop.service.OrderImporter;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.function.Consumer;
+
+/**
+ * 대량 주문 가져오기. 요청 본문을 한 줄씩 읽으면서 저장하고, 청크가 커밋될 때마다 진행 상황을 NDJSON 한 줄로 바로 내보낸다.
+ */
+@RestController
+public class OrderImportApiController {
+
+    private final OrderImporter orderImporter;
+    private final ObjectWriter writer;
+
+    public OrderImportApiController(OrderImporter orderImporter, ObjectMapper objectMapper) {
+        this.orderImporter = orderImporter;
+        this.writer = objectMapper.writerFor(OrderImportProgress.class);
+    }
+
+    @PostMapping(value = "/api/import/orders", consumes = "text/csv", produces = "application/x-ndjson")
+    public void importCsv(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        PrintWriter out = progressWriter(response);
+        orderImporter.importCsv(requestReader(request), progress(out));
+    }
+
+    @PostMapping(value = "/api/import/orders", consumes = "application/x-ndjson", produces = "application/x-ndjson")
+    public void importNdjson(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        PrintWriter out = progressWriter(response);
+        orderImporter.importNdjson(requestReader(request), progress(out));
+    }
+
+    private static Reader requestReader(HttpServletRequest request) throws IOException {
+        //charset 이 없으면 servlet 기본값(ISO-8859-1) 대신 UTF-8 로 읽는다.
+        if (request.getCharacterEncoding() == null) {
+            return new InputStreamReader(request.getInputStream(), StandardCharsets.UTF_8);
+        }
+        return request.getReader();
+    }
+
+    private static PrintWriter progressWriter(HttpServletResponse response) throws IOException {
+        response.setContentType("application/x-ndjson");
+        response.setCharacterEncoding("UTF-8");
+        return response.getWriter();
+    }
+
+    private Consumer<OrderImportProgress> progress(PrintWriter out) {
+        return progress -> {
+            try {
+                out.write(writer.writeValueAsString(progress));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            out.write('\n');
+            //청크마다 클라이언트가 진행 상황을 볼 수 있게 바로 보낸다.
+            out.flush();
+        };
+    }
+}
@@ -0,0 +1,67 @@
+package jpashop.api;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import jpashop.repository.order.query.OrderQueryRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+
+/**
+ * 주문 전체를 NDJSON(한 줄에 주문 하나) 또는 JSON 배열로 내보낸다.
+ */
+@Component
+public class OrderNdjsonExporter {
+
+    private final OrderQueryRepository orderQueryRepository;
+    private final ObjectMapper objectMapper;
+    private final ObjectWriter writer;
+    private final int fetchSize;
+
+    public OrderNdjsonExporter(OrderQueryRepository orderQueryRepository,
+                               ObjectMapper objectMapper,
+                               @Value("${jpashop.export.fetch-size:1000}") int fetchSize) {
+        this.orderQueryRepository = orderQueryRepository;
+        this.objectMapper = objectMapper;
+        //주문마다 flush 하지 않고 generator 버퍼가 찰 때만 내보낸다.
+        this.writer = objectMapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        this.fetchSize = fetchSize;
+    }
+
+    /**
+     * @return 내보낸 주문 수
+     */
+    @Transactional(readOnly = true)
+    public long export(OutputStream out) throws IOException {
+        long[] count = {0};
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+            generator.setRootValueSeparator(null);
+            orderQueryRepository.streamOrderQueryDtos(fetchSize, order -> {
+                try {
+                    writer.writeValue(generator, order);
+                    generator.writeRaw('\n');
+                    count[0]++;
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        }
+        return count[0];
+    }
+
+    /**
+     * v5 와 같은 응답을 DTO 없이 ResultSet 에서 JSON 배열로 바로 쓴다.
+     * @return 내보낸 주문 수
+     */
+    public long exportJsonArray(OutputStream out) throws IOException {
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+            return orderQueryRepository.writeAllByJdbc(generator, fetchSize);
+        }
+    }
+}
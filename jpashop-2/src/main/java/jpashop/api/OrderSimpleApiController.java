@@ -1,5 +1,7 @@
 package jpashop.api;
 
+import jpashop.cache.CacheStats;
+import jpashop.cache.OrderListingCache;
 import jpashop.domain.Address;
 import jpashop.domain.Order;
 import jpashop.domain.OrderStatus;
@@ -22,6 +24,7 @@ public class OrderSimpleApiController {
 
     private final OrderRepository orderRepository;
     private final OrderSimpleRepository orderSimpleRepository;
+    private final OrderListingCache orderListingCache;
 
     @GetMapping(value = "/api/v1/simple-orders")
     public List<Order> ordersV1() {
@@ -49,7 +52,12 @@ public class OrderSimpleApiController {
 
     @GetMapping(value ="/api/v4/simple-orders")
     public List<OrderSimpleQueryDto> ordersV4() {
-        return orderSimpleRepository.findOrderDtos();
+        return orderListingCache.getSimpleOrders("v4", orderSimpleRepository::findOrderDtos);
+    }
+
+    @GetMapping(value = "/api/v4/simple-orders/cache-stats")
+    public CacheStats ordersV4CacheStats() {
+        return orderListingCache.stats();
     }
 
     @Data
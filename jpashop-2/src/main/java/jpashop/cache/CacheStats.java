@@ -0,0 +1,18 @@
+package jpashop.cache;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * evictions 는 크기 제한으로, invalidations 는 태그 무효화로 제거된 엔트리 수
+ */
+@Getter
+@AllArgsConstructor
+public class CacheStats {
+
+    private long hits;
+    private long misses;
+    private long evictions;
+    private long invalidations;
+    private int size;
+}
@@ -0,0 +1,77 @@
+package jpashop.cache;
+
+import jpashop.domain.MemberChangedEvent;
+import jpashop.domain.OrderChangedEvent;
+import jpashop.domain.OrdersChangedEvent;
+import jpashop.repository.order.simpleQuery.OrderSimpleQueryDto;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * 주문 목록 응답 캐시.
+ * 목록 전체에는 "orders" 태그를, 목록에 포함된 주문마다 "order:{id}" 태그를 붙인다.
+ * 새 주문은 목록 구성이 바뀌므로 "orders" 를, 주문 취소는 그 주문이 들어 있는 엔트리만 무효화한다.
+ * 무효화는 커밋 이후에 한다.
+ */
+@Component
+public class OrderListingCache {
+
+    static final String ORDERS_TAG = "orders";
+
+    private final TaggedCache<String, List<OrderSimpleQueryDto>> cache;
+
+    public OrderListingCache(@Value("${jpashop.listing-cache.max-entries:100}") int maxEntries) {
+        this.cache = new TaggedCache<>(maxEntries);
+    }
+
+    /**
+     * 돌려주는 목록은 요청끼리 공유하므로 수정할 수 없는 복사본이다.
+     */
+    public List<OrderSimpleQueryDto> getSimpleOrders(String key, Supplier<List<OrderSimpleQueryDto>> loader) {
+        return cache.get(key, () -> Collections.unmodifiableList(new ArrayList<>(loader.get())), OrderListingCache::tags);
+    }
+
+    public CacheStats stats() {
+        return cache.stats();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onOrderChanged(OrderChangedEvent event) {
+        if (event.isCreated()) {
+            cache.invalidateTag(ORDERS_TAG);
+        } else {
+            cache.invalidateTag(orderTag(event.getOrderId()));
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onOrdersChanged(OrdersChangedEvent event) {
+        event.getOrderIds().forEach(orderId -> cache.invalidateTag(orderTag(orderId)));
+    }
+
+    /**
+     * 목록 DTO 에 회원 id 가 없어서 회원 정보가 바뀌면 목록 전체를 무효화한다.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onMemberChanged(MemberChangedEvent event) {
+        cache.invalidateTag(ORDERS_TAG);
+    }
+
+    private static Collection<String> tags(List<OrderSimpleQueryDto> orders) {
+        List<String> tags = new ArrayList<>(orders.size() + 1);
+        tags.add(ORDERS_TAG);
+        orders.forEach(o -> tags.add(orderTag(o.getOrderId())));
+        return tags;
+    }
+
+    private static String orderTag(Long orderId) {
+        return "order:" + orderId;
+    }
+}
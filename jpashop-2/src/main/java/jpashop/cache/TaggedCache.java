@@ -0,0 +1,117 @@
+package jpashop.cache;
+
+import java.util.*;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * 크기 제한이 있는 LRU 캐시. 엔트리마다 태그를 붙여두고 태그 단위로 무효화한다.
+ * 저장한 값을 복사하지 않고 그대로 돌려주므로 값은 수정할 수 없는 객체로 넣는다.
+ */
+public class TaggedCache<K, V> {
+
+    private final int maxEntries;
+    private final LinkedHashMap<K, Entry<V>> entries;
+    private final Map<String, Set<K>> keysByTag = new HashMap<>();
+
+    //무효화가 일어날 때마다 증가. 조회 도중 무효화가 있었으면 조회 결과를 캐시에 넣지 않는다.
+    private long generation;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+
+    public TaggedCache(int maxEntries) {
+        this.maxEntries = maxEntries;
+        this.entries = new LinkedHashMap<K, Entry<V>>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, Entry<V>> eldest) {
+                if (size() > TaggedCache.this.maxEntries) {
+                    unlinkTags(eldest.getKey(), eldest.getValue());
+                    evictions.increment();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * 캐시에 있으면 돌려주고, 없으면 loader 로 만들어서 tags 를 붙여 저장한다.
+     */
+    public V get(K key, Supplier<V> loader, Function<V, Collection<String>> tags) {
+        long generationAtLoad;
+        synchronized (this) {
+            Entry<V> entry = entries.get(key);
+            if (entry != null) {
+                hits.increment();
+                return entry.value;
+            }
+            misses.increment();
+            generationAtLoad = generation;
+        }
+
+        V value = loader.get();
+        Set<String> valueTags = new HashSet<>(tags.apply(value));
+        synchronized (this) {
+            if (generationAtLoad == generation) {
+                Entry<V> previous = entries.put(key, new Entry<>(value, valueTags));
+                if (previous != null) {
+                    unlinkTags(key, previous);
+                }
+                valueTags.forEach(tag -> keysByTag.computeIfAbsent(tag, t -> new HashSet<>()).add(key));
+            }
+        }
+        return value;
+    }
+
+    /**
+     * tag 가 붙은 엔트리만 제거한다.
+     */
+    public synchronized void invalidateTag(String tag) {
+        generation++;
+        Set<K> keys = keysByTag.remove(tag);
+        if (keys == null) {
+            return;
+        }
+        for (K key : keys) {
+            Entry<V> entry = entries.remove(key);
+            if (entry != null) {
+                unlinkTags(key, entry);
+                invalidations.increment();
+            }
+        }
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public CacheStats stats() {
+        return new CacheStats(hits.sum(), misses.sum(), evictions.sum(), invalidations.sum(), size());
+    }
+
+    private void unlinkTags(K key, Entry<V> entry) {
+        for (String tag : entry.tags) {
+            Set<K> keys = keysByTag.get(tag);
+            if (keys != null) {
+                keys.remove(key);
+                if (keys.isEmpty()) {
+                    keysByTag.remove(tag);
+                }
+            }
+        }
+    }
+
+    private static class Entry<V> {
+        private final V value;
+        private final Set<String> tags;
+
+        private Entry(V value, Set<String> tags) {
+            this.value = value;
+            this.tags = tags;
+        }
+    }
+}
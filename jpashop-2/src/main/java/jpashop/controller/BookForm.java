@@ -8,6 +8,7 @@ import lombok.Setter;
 public class BookForm {
 
     private Long id;
+    private Long version;
 
     private String name;
     private int price;
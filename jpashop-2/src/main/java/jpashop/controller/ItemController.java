@@ -3,6 +3,7 @@ package jpashop.controller;
 import jpashop.domain.item.Book;
 import jpashop.domain.item.Item;
 import jpashop.service.ItemService;
+import jpashop.service.OptimisticRetryExecutor;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
@@ -10,6 +11,7 @@ import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.ModelAttribute;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.servlet.mvc.support.RedirectAttributes;
 
 import java.util.List;
 
@@ -18,6 +20,7 @@ import java.util.List;
 public class ItemController {
 
     private final ItemService itemService;
+    private final OptimisticRetryExecutor optimisticRetryExecutor;
 
     @GetMapping(value = "/items/new")
     public String createForm(Model model) {
@@ -51,6 +54,7 @@ public class ItemController {
 
         BookForm form = new BookForm();
         form.setId(book.getId());
+        form.setVersion(book.getVersion());
         form.setName(book.getName());
         form.setPrice(book.getPrice());
         form.setStockQuantity(book.getStockQuantity());
@@ -62,17 +66,28 @@ public class ItemController {
     }
 
     @PostMapping(value = "/items/{itemId}/edit")
-    public String updateItem(@PathVariable("itemId") Long itemId, @ModelAttribute("form") BookForm form) {
-//        Book book = new Book();
-//        book.setId(form.getId());
-//        book.setName(form.getName());
-//        book.setPrice(form.getPrice());
-//        book.setStockQuantity(form.getStockQuantity());
-//        book.setAuthor(form.getAuthor());
-//        book.setIsbn(form.getIsbn());
-//        itemService.saveItem(book);
+    public String updateItem(@PathVariable("itemId") Long itemId, @ModelAttribute("form") BookForm form,
+                             RedirectAttributes redirectAttributes) {
+        if (form.getVersion() == null) {
+            optimisticRetryExecutor.run(itemId,
+                    () -> itemService.updateItem(itemId, form.getName(), form.getPrice(), form.getStockQuantity()));
+            return "redirect:/items";
+        }
 
-        itemService.updateItem(itemId, form.getName(), form.getPrice(), form.getStockQuantity());
+        //화면이 모든 값을 보내므로 상품을 읽지 않고 version 조건으로 바로 update 한다.
+        Book book = new Book();
+        book.setId(itemId);
+        book.setVersion(form.getVersion());
+        book.setName(form.getName());
+        book.setPrice(form.getPrice());
+        book.setStockQuantity(form.getStockQuantity());
+        book.setAuthor(form.getAuthor());
+        book.setIsbn(form.getIsbn());
+        if (itemService.updateBook(book) == 0) {
+            //화면을 연 뒤 상품이 바뀌었다. 다시 시도해도 같은 version 이므로 알려주고 최신 값으로 수정 화면을 다시 연다.
+            redirectAttributes.addFlashAttribute("updateError", "다른 곳에서 상품이 먼저 수정되었습니다. 최신 내용을 확인하고 다시 수정해 주세요.");
+            return "redirect:/items/" + itemId + "/edit";
+        }
 
         return "redirect:/items";
     }
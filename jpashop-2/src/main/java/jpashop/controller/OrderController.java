@@ -3,16 +3,23 @@ package jpashop.controller;
 import jpashop.domain.Member;
 import jpashop.domain.Order;
 import jpashop.domain.item.Item;
+import jpashop.idempotency.IdempotentExecutor;
 import jpashop.repository.OrderSearch;
 import jpashop.service.ItemService;
 import jpashop.service.MemberService;
+import jpashop.service.OptimisticRetryExecutor;
+import jpashop.service.OrderPipeline;
 import jpashop.service.OrderService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
+import org.springframework.util.StringUtils;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
 
 @Controller
 @RequiredArgsConstructor
@@ -21,6 +28,9 @@ public class OrderController {
     private final OrderService orderService;
     private final MemberService memberService;
     private final ItemService itemService;
+    private final OptimisticRetryExecutor optimisticRetryExecutor;
+    private final OrderPipeline orderPipeline;
+    private final IdempotentExecutor idempotentExecutor;
 
     @GetMapping(value = "/order")
     public String createForm(Model model) {
@@ -33,12 +43,52 @@ public class OrderController {
         return "order/orderForm";
     }
 
+    /**
+     * itemId, count 를 여러 번 보내면 한 주문으로 묶는다.
+     * Idempotency-Key 헤더가 있으면 같은 회원이 같은 키, 같은 내용으로 다시 보낸 요청은 주문하지 않고 처음 주문으로 끝낸다.
+     */
     @PostMapping(value = "/order")
-    public String order(@RequestParam("memberId") Long memberId,
-                        @RequestParam("itemId") Long itemId,
-                        @RequestParam("count") int count) {
+    public String order(@RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey,
+                        @RequestParam("memberId") Long memberId,
+                        @RequestParam("itemId") List<Long> itemIds,
+                        @RequestParam("count") List<Integer> counts) {
+        if (itemIds.size() != counts.size()) {
+            throw new IllegalArgumentException("상품과 수량의 개수가 다릅니다.");
+        }
+        if (counts.stream().anyMatch(count -> count == null || count <= 0)) {
+            throw new IllegalArgumentException("주문 수량은 1개 이상이어야 합니다.");
+        }
 
-        orderService.order(memberId, itemId, count);
+        Map<Long, Integer> itemCounts = new HashMap<>();
+        for (int i = 0; i < itemIds.size(); i++) {
+            itemCounts.merge(itemIds.get(i), counts.get(i), Integer::sum);
+        }
+
+        boolean hasKey = StringUtils.hasText(idempotencyKey);
+        if (orderPipeline.isEnabled()) {
+            //비동기 주문이면 접수만 하고 돌아간다. 커밋은 writer 스레드가 묶어서 한다.
+            Supplier<Long> submit = () -> orderPipeline.submit(memberId, itemCounts).getTicketId();
+            if (hasKey) {
+                idempotentExecutor.executeAsyncOrder(memberId, idempotencyKey, itemCounts, submit);
+            } else {
+                submit.get();
+            }
+            return "redirect:/orders";
+        }
+
+        Supplier<Long> order;
+        if (itemCounts.size() == 1) {
+            //조건부 update 로 재고를 줄이므로 버전 충돌이 나지 않는다.
+            Long itemId = itemIds.get(0);
+            order = () -> orderService.order(memberId, itemId, itemCounts.get(itemId));
+        } else {
+            order = () -> orderService.order(memberId, itemCounts);
+        }
+        if (hasKey) {
+            idempotentExecutor.executeOrder(memberId, idempotencyKey, itemCounts, order);
+        } else {
+            order.get();
+        }
         return "redirect:/orders";
     }
 
@@ -50,9 +100,12 @@ public class OrderController {
         return "order/orderList";
     }
 
+    /**
+     * 취소는 상품 엔티티의 재고를 늘리므로 동시에 주문이 들어오면 버전 충돌이 날 수 있다. 충돌하면 처음부터 다시 취소한다.
+     */
     @PostMapping(value = "/orders/{orderId}/cancel")
     public String cancelOrder(@PathVariable("orderId") Long orderId) {
-        orderService.cancalOrder(orderId);
+        optimisticRetryExecutor.run(() -> orderService.cancalOrder(orderId));
         return "redirect:/orders";
     }
 }
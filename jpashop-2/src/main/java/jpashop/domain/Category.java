@@ -12,7 +12,7 @@ import java.util.List;
 @Getter @Setter
 public class Category {
 
-    @Id @GeneratedValue
+    @Id @GeneratedValue(generator = "jpashop_seq")
     @Column(name ="category_id")
     private Long id;
 
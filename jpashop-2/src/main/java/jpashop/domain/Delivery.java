@@ -10,7 +10,7 @@ import javax.persistence.*;
 @Getter @Setter
 public class Delivery {
 
-    @Id @GeneratedValue
+    @Id @GeneratedValue(generator = "jpashop_seq")
     @Column(name ="delivery_id")
     private Long id;
 
@@ -0,0 +1,30 @@
+package jpashop.domain;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * 처리한 Idempotency-Key(회원 id 로 구분) 와 그 결과 주문 id(비동기 주문이면 ticketId). DbIdempotencyStore 가 JdbcTemplate 으로 읽고 쓴다.
+ */
+@Entity
+@Table(name = "idempotency_key", indexes = @Index(name = "idx_idempotency_key_created_at", columnList = "createdAt"))
+@Getter
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+public class IdempotencyKey {
+
+    @Id
+    @Column(name = "idempotency_key", length = 100)
+    private String key;
+
+    private Long orderId;
+
+    //회원 id, 주문 상품과 수량의 SHA-256
+    @Column(length = 64)
+    private String requestHash;
+
+    private LocalDateTime createdAt;
+}
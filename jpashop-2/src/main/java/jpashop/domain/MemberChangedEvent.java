@@ -0,0 +1,14 @@
+package jpashop.domain;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * 회원 정보가 변경되었을 때 발행한다.
+ */
+@Getter
+@AllArgsConstructor
+public class MemberChangedEvent {
+
+    private Long memberId;
+}
@@ -4,19 +4,22 @@ import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
+import org.hibernate.annotations.DynamicUpdate;
 
 import javax.persistence.*;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Predicate;
 
 @Entity
-@Table(name = "orders")
+@DynamicUpdate
+@Table(name = "orders", indexes = @Index(name = "idx_orders_order_date", columnList = "orderDate, order_id"))
 @Getter @Setter
 @NoArgsConstructor(access = AccessLevel.PROTECTED)
 public class Order {
 
-    @Id @GeneratedValue
+    @Id @GeneratedValue(generator = "jpashop_seq")
     @Column(name = "order_id")
     private Long id;
 
@@ -67,13 +70,22 @@ public class Order {
      * 주문 취소
      */
     public void cancel() {
+        cancel(itemId -> true);
+    }
+
+    /**
+     * 주문 취소. restock 이 false 인 상품(재고 장부 상품 등) 은 상품 엔티티의 재고를 늘리지 않는다.
+     */
+    public void cancel(Predicate<Long> restock) {
         if (delivery.getStatus() == DeliveryStatus.COMP) {
             throw new IllegalStateException("이미 배송 완료된 상품은 취소 불가.");
         }
 
         this.setStatus(OrderStatus.CANCEL);
         for (OrderItem orderItem : orderItems) {
-            orderItem.cancal();
+            if (restock.test(orderItem.getItem().getId())) {
+                orderItem.cancal();
+            }
         }
     }
 
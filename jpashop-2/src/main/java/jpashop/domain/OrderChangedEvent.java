@@ -0,0 +1,20 @@
+package jpashop.domain;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * 주문이 생성되거나 취소되었을 때 발행한다.
+ */
+@Getter
+@AllArgsConstructor
+public class OrderChangedEvent {
+
+    private Long orderId;
+    private OrderStatus status;
+
+    /**
+     * 새 주문이면 true, 기존 주문의 상태 변경이면 false
+     */
+    private boolean created;
+}
@@ -14,7 +14,7 @@ import javax.persistence.*;
 @NoArgsConstructor(access = AccessLevel.PROTECTED)
 public class OrderItem {
 
-    @Id @GeneratedValue
+    @Id @GeneratedValue(generator = "jpashop_seq")
     @Column(name = "order_item_id")
     private Long id;
 
@@ -40,6 +40,17 @@ public class OrderItem {
         return orderItem;
     }
 
+    /**
+     * 재고를 ItemRepository.reserveStock 으로 이미 줄인 경우
+     */
+    public static OrderItem createReservedOrderItem(Item item, int orderPrice, int count) {
+        OrderItem orderItem = new OrderItem();
+        orderItem.setItem(item);
+        orderItem.setOrderPrice(orderPrice);
+        orderItem.setCount(count);
+        return orderItem;
+    }
+
     /**
      * 주문 취소
      */
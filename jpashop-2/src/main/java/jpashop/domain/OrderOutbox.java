@@ -0,0 +1,35 @@
+package jpashop.domain;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * 아직 외부(검색, 분석) 로 보내지 않은 주문 이벤트.
+ * 주문, 주문 취소와 같은 트랜잭션에서 insert 하고 OrderOutboxRelay 가 보낸 뒤 지운다.
+ */
+@Entity
+@Getter
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+public class OrderOutbox {
+
+    @Id @GeneratedValue(generator = "jpashop_seq")
+    @Column(name = "order_outbox_id")
+    private Long id;
+
+    private Long orderId;
+
+    @Enumerated(EnumType.STRING)
+    private OrderStatus status;
+
+    private LocalDateTime createdAt;
+
+    public OrderOutbox(Long orderId, OrderStatus status) {
+        this.orderId = orderId;
+        this.status = status;
+        this.createdAt = LocalDateTime.now();
+    }
+}
@@ -0,0 +1,62 @@
+package jpashop.domain;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.*;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static java.util.stream.Collectors.toList;
+
+/**
+ * 주문 조회용 읽기 모델. 주문상품 한 건당 한 row 로 주문, 회원, 배송, 상품 정보를 미리 펼쳐 둔다.
+ * 주문, 취소, 회원 이름과 상품 이름 변경 시 같은 트랜잭션에서 함께 갱신한다.
+ */
+@Entity
+@Table(name = "order_summary", indexes = @Index(name = "idx_order_summary_order_id", columnList = "orderId, order_item_id"))
+@Getter
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+public class OrderSummary {
+
+    @Id
+    @Column(name = "order_item_id")
+    private Long id;
+
+    private Long orderId;
+    private Long memberId;
+    private String memberName;
+    private LocalDateTime orderDate;
+
+    @Enumerated(value = EnumType.STRING)
+    private OrderStatus orderStatus;
+
+    @Embedded
+    private Address address;
+
+    private Long itemId;
+    private String itemName;
+    private int orderPrice;
+    private int count;
+
+    public static List<OrderSummary> createOrderSummaries(Order order) {
+        return order.getOrderItems().stream()
+                .map(orderItem -> {
+                    OrderSummary summary = new OrderSummary();
+                    summary.id = orderItem.getId();
+                    summary.orderId = order.getId();
+                    summary.memberId = order.getMember().getId();
+                    summary.memberName = order.getMember().getName();
+                    summary.orderDate = order.getOrderDate();
+                    summary.orderStatus = order.getStatus();
+                    summary.address = order.getDelivery().getAddress();
+                    summary.itemId = orderItem.getItem().getId();
+                    summary.itemName = orderItem.getItem().getName();
+                    summary.orderPrice = orderItem.getOrderPrice();
+                    summary.count = orderItem.getCount();
+                    return summary;
+                })
+                .collect(toList());
+    }
+}
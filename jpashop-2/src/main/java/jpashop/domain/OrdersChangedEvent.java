@@ -0,0 +1,17 @@
+package jpashop.domain;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+
+/**
+ * 여러 주문의 상태가 한 번에 바뀌었을 때(일괄 취소 등) 주문마다 OrderChangedEvent 를 내지 않고 한 번 발행한다.
+ */
+@Getter
+@AllArgsConstructor
+public class OrdersChangedEvent {
+
+    private List<Long> orderIds;
+    private OrderStatus status;
+}
@@ -0,0 +1,30 @@
+package jpashop.domain;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.*;
+
+/**
+ * 재고 장부(StockLedger) 의 아직 item 테이블에 반영하지 않은 재고 변경분.
+ * 주문과 같은 트랜잭션에서 insert 만 하기 때문에 상품 row 락을 잡지 않는다.
+ */
+@Entity
+@Table(indexes = @Index(name = "idx_stock_journal_item_id", columnList = "itemId"))
+@Getter
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+public class StockJournal {
+
+    @Id @GeneratedValue(generator = "jpashop_seq")
+    @Column(name = "stock_journal_id")
+    private Long id;
+
+    private Long itemId;
+    private int delta;
+
+    public StockJournal(Long itemId, int delta) {
+        this.itemId = itemId;
+        this.delta = delta;
+    }
+}
@@ -2,11 +2,13 @@ package jpashop.domain.item;
 
 import lombok.Getter;
 import lombok.Setter;
+import org.hibernate.annotations.DynamicUpdate;
 
 import javax.persistence.DiscriminatorValue;
 import javax.persistence.Entity;
 
 @Entity
+@DynamicUpdate
 @DiscriminatorValue(value = "B")
 @Getter @Setter
 public class Book extends Item {
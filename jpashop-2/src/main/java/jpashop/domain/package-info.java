@@ -0,0 +1,14 @@
+/**
+ * 모든 엔티티가 같이 쓰는 id 생성기.
+ * hibernate_sequence 를 50 씩 올리고 그 사이 값은 메모리에서 나눠 쓰기 때문에(pooled-lo)
+ * persist 할 때마다 시퀀스를 부르지 않는다. jdbc.batch_size 와 함께 써야 insert 가 batch 로 묶인다.
+ */
+@GenericGenerator(name = "jpashop_seq", strategy = "enhanced-sequence", parameters = {
+        @Parameter(name = "sequence_name", value = "hibernate_sequence"),
+        @Parameter(name = "increment_size", value = "50"),
+        @Parameter(name = "optimizer", value = "pooled-lo")
+})
+package jpashop.domain;
+
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Parameter;
@@ -0,0 +1,27 @@
+package jpashop.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * 이미 쓴 Idempotency-Key 로 내용이 다른 요청을 보냈을 때. 새 키로 다시 보내야 한다.
+ */
+@ResponseStatus(HttpStatus.UNPROCESSABLE_ENTITY)
+public class IdempotencyKeyReusedException extends RuntimeException {
+
+    public IdempotencyKeyReusedException() {
+        super();
+    }
+
+    public IdempotencyKeyReusedException(String message) {
+        super(message);
+    }
+
+    public IdempotencyKeyReusedException(String message, Throwable cause) {
+        super(message, cause);
+    }
+
+    public IdempotencyKeyReusedException(Throwable cause) {
+        super(cause);
+    }
+}
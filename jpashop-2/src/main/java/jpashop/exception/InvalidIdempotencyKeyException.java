@@ -0,0 +1,27 @@
+package jpashop.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * Idempotency-Key 가 너무 길 때. 저장할 수 없는 키로 주문하면 재시도를 걸러내지 못한다.
+ */
+@ResponseStatus(HttpStatus.BAD_REQUEST)
+public class InvalidIdempotencyKeyException extends RuntimeException {
+
+    public InvalidIdempotencyKeyException() {
+        super();
+    }
+
+    public InvalidIdempotencyKeyException(String message) {
+        super(message);
+    }
+
+    public InvalidIdempotencyKeyException(String message, Throwable cause) {
+        super(message, cause);
+    }
+
+    public InvalidIdempotencyKeyException(Throwable cause) {
+        super(cause);
+    }
+}
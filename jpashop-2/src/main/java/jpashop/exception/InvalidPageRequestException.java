@@ -0,0 +1,27 @@
+package jpashop.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * 페이지 크기나 페이지 토큰이 잘못되었을 때.
+ */
+@ResponseStatus(HttpStatus.BAD_REQUEST)
+public class InvalidPageRequestException extends RuntimeException {
+
+    public InvalidPageRequestException() {
+        super();
+    }
+
+    public InvalidPageRequestException(String message) {
+        super(message);
+    }
+
+    public InvalidPageRequestException(String message, Throwable cause) {
+        super(message, cause);
+    }
+
+    public InvalidPageRequestException(Throwable cause) {
+        super(cause);
+    }
+}
@@ -0,0 +1,27 @@
+package jpashop.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * 상품 버전 충돌이 재시도 후에도 계속될 때. 최신 상품으로 다시 요청해야 한다.
+ */
+@ResponseStatus(HttpStatus.CONFLICT)
+public class ItemConflictException extends RuntimeException {
+
+    public ItemConflictException() {
+        super();
+    }
+
+    public ItemConflictException(String message) {
+        super(message);
+    }
+
+    public ItemConflictException(String message, Throwable cause) {
+        super(message, cause);
+    }
+
+    public ItemConflictException(Throwable cause) {
+        super(cause);
+    }
+}
@@ -0,0 +1,75 @@
+package jpashop.idempotency;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * idempotency_key 테이블 저장소. 서버가 여러 대거나 재시작해도 키가 남는다.
+ * 같은 서버로 오는 재시도는 앞단의 메모리 저장소에서 바로 찾기 때문에 DB 를 읽지 않는다.
+ * 만료된 키는 주기적으로 지운다.
+ * 저장할 때는 메모리에 먼저 넣기 때문에 DB 에 쓰다 실패해도 같은 서버로 오는 재시도는 걸러낸다.
+ */
+@Component
+@ConditionalOnProperty(name = "jpashop.idempotency.store", havingValue = "db")
+public class DbIdempotencyStore implements IdempotencyStore {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final InMemoryIdempotencyStore local;
+    private final long ttlMillis;
+
+    public DbIdempotencyStore(JdbcTemplate jdbcTemplate,
+                              @Value("${jpashop.idempotency.max-keys:100000}") int maxKeys,
+                              @Value("${jpashop.idempotency.ttl-millis:86400000}") long ttlMillis) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.local = new InMemoryIdempotencyStore(maxKeys, ttlMillis);
+        this.ttlMillis = ttlMillis;
+    }
+
+    @Override
+    public IdempotencyRecord find(String key) {
+        IdempotencyRecord record = local.find(key);
+        if (record != null) {
+            return record;
+        }
+        List<IdempotencyRecord> found = jdbcTemplate.query(
+                "select order_id, request_hash from idempotency_key where idempotency_key = ? and created_at > ?",
+                (rs, rowNum) -> new IdempotencyRecord(rs.getLong("order_id"), rs.getString("request_hash")),
+                key, expiredBefore());
+        if (found.isEmpty()) {
+            return null;
+        }
+        local.save(key, found.get(0));
+        return found.get(0);
+    }
+
+    @Override
+    public void save(String key, IdempotencyRecord record) {
+        local.save(key, record);
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        try {
+            jdbcTemplate.update("insert into idempotency_key (idempotency_key, order_id, request_hash, created_at) values (?, ?, ?, ?)",
+                    key, record.getOrderId(), record.getRequestHash(), now);
+        } catch (DuplicateKeyException e) {
+            //만료되어 아직 지워지지 않은 키
+            jdbcTemplate.update("update idempotency_key set order_id = ?, request_hash = ?, created_at = ? where idempotency_key = ?",
+                    record.getOrderId(), record.getRequestHash(), now, key);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${jpashop.idempotency.purge-millis:60000}")
+    public int purgeExpired() {
+        return jdbcTemplate.update("delete from idempotency_key where created_at <= ?", expiredBefore());
+    }
+
+    private Timestamp expiredBefore() {
+        return Timestamp.valueOf(LocalDateTime.now().minusNanos(ttlMillis * 1_000_000));
+    }
+}
@@ -0,0 +1,16 @@
+package jpashop.idempotency;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * 처리한 요청의 주문 id 와 요청 내용 해시. 같은 키로 내용이 다른 요청이 오면 해시로 알아낸다.
+ * 비동기 주문이면 주문 id 대신 ticketId 를 담는다.
+ */
+@Getter
+@AllArgsConstructor
+public class IdempotencyRecord {
+
+    private Long orderId;
+    private String requestHash;
+}
@@ -0,0 +1,15 @@
+package jpashop.idempotency;
+
+/**
+ * Idempotency-Key 별로 처리 결과(주문 id, 요청 해시) 를 저장한다.
+ * jpashop.idempotency.store 로 구현을 고른다(memory, db).
+ */
+public interface IdempotencyStore {
+
+    /**
+     * @return 저장된 결과, 없거나 만료되었으면 null
+     */
+    IdempotencyRecord find(String key);
+
+    void save(String key, IdempotencyRecord record);
+}
@@ -0,0 +1,168 @@
+package jpashop.idempotency;
+
+import jpashop.exception.IdempotencyKeyReusedException;
+import jpashop.exception.InvalidIdempotencyKeyException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * Idempotency-Key 가 같은 요청은 한 번만 처리한다.
+ * 이미 처리한 키면 저장해 둔 주문 id 를 돌려주고, 같은 키로 처리 중인 요청이 있으면 같이 실행하지 않고 그 결과를 기다린다.
+ * 같은 키로 내용이 다른 요청이 오면 처음 주문을 돌려주지 않고 IdempotencyKeyReusedException 을 던진다.
+ * 처음 요청이 실패하면 키를 저장하지 않으므로 기다리던 요청 중 하나가 다시 처리한다.
+ * 트랜잭션 바깥에서 호출해야 한다. 커밋 후 키를 저장하기 전에 서버가 죽으면 재시도가 한 번 더 처리될 수 있다.
+ * 키는 MAX_KEY_LENGTH 글자까지만 받는다(idempotency_key 컬럼에 회원 id 와 함께 들어가야 한다).
+ */
+@Slf4j
+@Component
+public class IdempotentExecutor {
+
+    public static final int MAX_KEY_LENGTH = 64;
+
+    private final IdempotencyStore idempotencyStore;
+    private final long waitMillis;
+    private final Map<String, InFlight> inFlight = new ConcurrentHashMap<>();
+
+    public IdempotentExecutor(IdempotencyStore idempotencyStore,
+                              @Value("${jpashop.idempotency.wait-millis:30000}") long waitMillis) {
+        this.idempotencyStore = idempotencyStore;
+        this.waitMillis = waitMillis;
+    }
+
+    /**
+     * 주문. 키는 회원마다 따로 보고, 회원과 상품별 수량이 같아야 같은 요청으로 본다.
+     */
+    public Long executeOrder(Long memberId, String key, Map<Long, Integer> itemCounts, Supplier<Long> action) {
+        return execute(scopedKey(memberId, key), sha256(memberId + "|" + new TreeMap<>(itemCounts)), action);
+    }
+
+    /**
+     * 비동기 주문 접수. 주문 id 대신 ticketId 를 저장한다.
+     * 같은 키를 동기 주문에 쓴 적이 있으면 내용이 다른 요청으로 보고 거절한다.
+     */
+    public Long executeAsyncOrder(Long memberId, String key, Map<Long, Integer> itemCounts, Supplier<Long> submit) {
+        return execute(scopedKey(memberId, key), sha256(memberId + "|" + new TreeMap<>(itemCounts) + "|async"), submit);
+    }
+
+    private static String scopedKey(Long memberId, String key) {
+        if (key.length() > MAX_KEY_LENGTH) {
+            throw new InvalidIdempotencyKeyException("Idempotency-Key 는 " + MAX_KEY_LENGTH + "자 이하여야 합니다.");
+        }
+        return memberId + ":" + key;
+    }
+
+    public Long execute(String key, String requestHash, Supplier<Long> action) {
+        while (true) {
+            Long orderId = findOrderId(key, requestHash);
+            if (orderId != null) {
+                return orderId;
+            }
+
+            InFlight mine = new InFlight(requestHash);
+            InFlight running = inFlight.putIfAbsent(key, mine);
+            if (running != null) {
+                if (!running.requestHash.equals(requestHash)) {
+                    throw reused();
+                }
+                if (await(running.result)) {
+                    return running.result.join();
+                }
+                continue;
+            }
+
+            try {
+                //putIfAbsent 전에 앞 요청이 끝났을 수 있다.
+                orderId = findOrderId(key, requestHash);
+                if (orderId == null) {
+                    orderId = action.get();
+                    save(key, new IdempotencyRecord(orderId, requestHash));
+                }
+                mine.result.complete(orderId);
+                return orderId;
+            } catch (RuntimeException e) {
+                mine.result.completeExceptionally(e);
+                throw e;
+            } finally {
+                inFlight.remove(key, mine);
+            }
+        }
+    }
+
+    private Long findOrderId(String key, String requestHash) {
+        IdempotencyRecord record = idempotencyStore.find(key);
+        if (record == null) {
+            return null;
+        }
+        if (!requestHash.equals(record.getRequestHash())) {
+            throw reused();
+        }
+        return record.getOrderId();
+    }
+
+    /**
+     * 주문은 이미 커밋되었으므로 키를 저장하지 못해도 주문 id 는 돌려준다.
+     */
+    private void save(String key, IdempotencyRecord record) {
+        try {
+            idempotencyStore.save(key, record);
+        } catch (RuntimeException e) {
+            log.warn("idempotency key not saved key={} orderId={}", key, record.getOrderId(), e);
+        }
+    }
+
+    /**
+     * @return 앞 요청이 성공했으면 true
+     */
+    private boolean await(CompletableFuture<Long> running) {
+        try {
+            running.get(waitMillis, TimeUnit.MILLISECONDS);
+            return true;
+        } catch (ExecutionException e) {
+            return false;
+        } catch (TimeoutException e) {
+            throw new IllegalStateException("같은 Idempotency-Key 요청이 아직 처리 중입니다.", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("같은 Idempotency-Key 요청을 기다리다 중단되었습니다.", e);
+        }
+    }
+
+    private static IdempotencyKeyReusedException reused() {
+        return new IdempotencyKeyReusedException("이미 다른 요청에 쓴 Idempotency-Key 입니다.");
+    }
+
+    private static String sha256(String value) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(value.getBytes(StandardCharsets.UTF_8));
+            StringBuilder hex = new StringBuilder(digest.length * 2);
+            for (byte b : digest) {
+                hex.append(String.format("%02x", b));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static class InFlight {
+        private final String requestHash;
+        private final CompletableFuture<Long> result = new CompletableFuture<>();
+
+        InFlight(String requestHash) {
+            this.requestHash = requestHash;
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package jpashop.idempotency;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 크기 제한이 있는 메모리 저장소. 넣은 순서대로 max-keys 를 넘으면 오래된 키부터 버리고, ttl-millis 가 지난 키는 없는 것으로 본다.
+ * 서버마다 따로 가지므로 재시도가 다른 서버로 가면 중복을 막지 못한다.
+ */
+@Component
+@ConditionalOnProperty(name = "jpashop.idempotency.store", havingValue = "memory", matchIfMissing = true)
+public class InMemoryIdempotencyStore implements IdempotencyStore {
+
+    private final long ttlNanos;
+    private final LinkedHashMap<String, Entry> entries;
+
+    public InMemoryIdempotencyStore(@Value("${jpashop.idempotency.max-keys:100000}") int maxKeys,
+                                    @Value("${jpashop.idempotency.ttl-millis:86400000}") long ttlMillis) {
+        this.ttlNanos = TimeUnit.MILLISECONDS.toNanos(ttlMillis);
+        this.entries = new LinkedHashMap<String, Entry>() {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > maxKeys || eldest.getValue().isExpired(System.nanoTime());
+            }
+        };
+    }
+
+    @Override
+    public synchronized IdempotencyRecord find(String key) {
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            return null;
+        }
+        if (entry.isExpired(System.nanoTime())) {
+            entries.remove(key);
+            return null;
+        }
+        return entry.record;
+    }
+
+    @Override
+    public synchronized void save(String key, IdempotencyRecord record) {
+        entries.put(key, new Entry(record, System.nanoTime() + ttlNanos));
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    private static class Entry {
+        private final IdempotencyRecord record;
+        private final long expiresAt;
+
+        Entry(IdempotencyRecord record, long expiresAt) {
+            this.record = record;
+            this.expiresAt = expiresAt;
+        }
+
+        boolean isExpired(long now) {
+            return now - expiresAt > 0;
+        }
+    }
+}
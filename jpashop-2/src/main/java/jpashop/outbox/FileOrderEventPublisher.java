@@ -0,0 +1,62 @@
+package jpashop.outbox;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jpashop.domain.OrderOutbox;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+
+import static java.nio.file.StandardOpenOption.APPEND;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+/**
+ * 이벤트를 한 줄에 하나씩 JSON 으로 파일 끝에 붙인다(NDJSON).
+ * 묶음마다 디스크에 쓴 것을 확인(force) 한 뒤 돌아가므로 outbox 에서 지운 이벤트는 파일에 남아 있다.
+ */
+@Component
+@ConditionalOnProperty(name = "jpashop.outbox.publisher", havingValue = "file")
+public class FileOrderEventPublisher implements OrderEventPublisher {
+
+    private final ObjectMapper objectMapper;
+    private final Path file;
+
+    public FileOrderEventPublisher(ObjectMapper objectMapper,
+                                   @Value("${jpashop.outbox.file:outbox/order-events.ndjson}") String file) {
+        this.objectMapper = objectMapper;
+        this.file = Paths.get(file);
+    }
+
+    @Override
+    public synchronized void publish(List<OrderOutbox> events) {
+        StringBuilder lines = new StringBuilder(events.size() * 100);
+        try {
+            for (OrderOutbox event : events) {
+                lines.append(objectMapper.writeValueAsString(event)).append('\n');
+            }
+            Path parent = file.toAbsolutePath().getParent();
+            if (parent != null) {
+                Files.createDirectories(parent);
+            }
+            try (FileChannel channel = FileChannel.open(file, CREATE, WRITE, APPEND)) {
+                ByteBuffer buffer = ByteBuffer.wrap(lines.toString().getBytes(StandardCharsets.UTF_8));
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+                channel.force(false);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
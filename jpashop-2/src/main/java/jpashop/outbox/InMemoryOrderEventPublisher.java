@@ -0,0 +1,44 @@
+package jpashop.outbox;
+
+import jpashop.domain.OrderOutbox;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * 최근 max-events 개의 이벤트를 메모리에 쌓아 둔다. 테스트, 로컬 확인용
+ */
+@Component
+@ConditionalOnProperty(name = "jpashop.outbox.publisher", havingValue = "memory", matchIfMissing = true)
+public class InMemoryOrderEventPublisher implements OrderEventPublisher {
+
+    private final int maxEvents;
+    private final Deque<OrderOutbox> events = new ArrayDeque<>();
+
+    public InMemoryOrderEventPublisher(@Value("${jpashop.outbox.max-events:10000}") int maxEvents) {
+        this.maxEvents = maxEvents;
+    }
+
+    @Override
+    public synchronized void publish(List<OrderOutbox> batch) {
+        for (OrderOutbox event : batch) {
+            events.addLast(event);
+            if (events.size() > maxEvents) {
+                events.removeFirst();
+            }
+        }
+    }
+
+    public synchronized List<OrderOutbox> getEvents() {
+        return new ArrayList<>(events);
+    }
+
+    public synchronized void clear() {
+        events.clear();
+    }
+}
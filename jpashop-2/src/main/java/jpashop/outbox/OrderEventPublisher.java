@@ -0,0 +1,15 @@
+package jpashop.outbox;
+
+import jpashop.domain.OrderOutbox;
+
+import java.util.List;
+
+/**
+ * OrderOutboxRelay 가 꺼낸 주문 이벤트를 외부로 보낸다.
+ * 예외를 던지면 묶음 전체가 outbox 에 남아서 다음 번에 다시 보내므로 같은 이벤트를 두 번 받을 수 있다.
+ * 받는 쪽은 OrderOutbox.id 로 중복을 거른다.
+ */
+public interface OrderEventPublisher {
+
+    void publish(List<OrderOutbox> events);
+}
@@ -0,0 +1,127 @@
+package jpashop.outbox;
+
+import jpashop.domain.OrderOutbox;
+import jpashop.repository.OrderOutboxRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static java.util.stream.Collectors.toList;
+
+/**
+ * order_outbox 를 batch-size 개씩 id 순서로 꺼내서 OrderEventPublisher 로 보내고 지운다.
+ * 보내기와 지우기가 한 트랜잭션이라 보내다 실패하면 묶음이 그대로 남아 다음 번에 다시 보낸다(at-least-once).
+ * 아직 커밋되지 않은 주문의 이벤트는 보이지 않다가 커밋된 뒤 다음 번에 나가므로 id 순서가 커밋 순서와 다를 수 있다.
+ * 서버 한 대에서만 보낸다고 가정한다.
+ */
+@Slf4j
+@Component
+public class OrderOutboxRelay {
+
+    private static final int WINDOW_SECONDS = 60;
+
+    private final OrderOutboxRepository orderOutboxRepository;
+    private final OrderEventPublisher publisher;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean enabled;
+    private final int batchSize;
+
+    private final AtomicLong published = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+    private volatile long lastLagMillis;
+    private final long[] windowSeconds = new long[WINDOW_SECONDS];
+    private final long[] windowCounts = new long[WINDOW_SECONDS];
+
+    public OrderOutboxRelay(OrderOutboxRepository orderOutboxRepository,
+                            OrderEventPublisher publisher,
+                            PlatformTransactionManager transactionManager,
+                            @Value("${jpashop.outbox.enabled:false}") boolean enabled,
+                            @Value("${jpashop.outbox.batch-size:500}") int batchSize) {
+        this.orderOutboxRepository = orderOutboxRepository;
+        this.publisher = publisher;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.enabled = enabled;
+        this.batchSize = batchSize;
+        if (enabled && publisher instanceof InMemoryOrderEventPublisher) {
+            log.warn("outbox relay publishes to memory; relayed events are lost on restart. set jpashop.outbox.publisher");
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${jpashop.outbox.poll-millis:500}")
+    public void poll() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            relay();
+        } catch (RuntimeException e) {
+            failures.incrementAndGet();
+            log.warn("order outbox relay failed, will retry", e);
+        }
+    }
+
+    /**
+     * 남은 이벤트가 batch-size 보다 적어질 때까지 보낸다.
+     * @return 보낸 이벤트 수
+     */
+    public int relay() {
+        int relayed = 0;
+        while (true) {
+            Integer count = transactionTemplate.execute(status -> {
+                List<OrderOutbox> events = orderOutboxRepository.findOldest(batchSize);
+                if (events.isEmpty()) {
+                    return 0;
+                }
+                publisher.publish(events);
+                orderOutboxRepository.deleteByIds(events.stream().map(OrderOutbox::getId).collect(toList()));
+                lastLagMillis = Duration.between(events.get(0).getCreatedAt(), LocalDateTime.now()).toMillis();
+                return events.size();
+            });
+            published.addAndGet(count);
+            record(count);
+            relayed += count;
+            if (count < batchSize) {
+                return relayed;
+            }
+        }
+    }
+
+    public OutboxStats stats() {
+        return transactionTemplate.execute(status -> {
+            LocalDateTime oldest = orderOutboxRepository.findOldestCreatedAt();
+            long oldestPendingMillis = oldest == null ? 0 : Duration.between(oldest, LocalDateTime.now()).toMillis();
+            return new OutboxStats(orderOutboxRepository.count(), oldestPendingMillis, lastLagMillis,
+                    published.get(), failures.get(), publishedPerSecond());
+        });
+    }
+
+    //초 단위 칸 WINDOW_SECONDS 개를 돌려 쓴다.
+    private synchronized void record(int count) {
+        long now = System.currentTimeMillis() / 1000;
+        int slot = (int) (now % WINDOW_SECONDS);
+        if (windowSeconds[slot] != now) {
+            windowSeconds[slot] = now;
+            windowCounts[slot] = 0;
+        }
+        windowCounts[slot] += count;
+    }
+
+    private synchronized double publishedPerSecond() {
+        long now = System.currentTimeMillis() / 1000;
+        long sum = 0;
+        for (int i = 0; i < WINDOW_SECONDS; i++) {
+            if (now - windowSeconds[i] < WINDOW_SECONDS) {
+                sum += windowCounts[i];
+            }
+        }
+        return (double) sum / WINDOW_SECONDS;
+    }
+}
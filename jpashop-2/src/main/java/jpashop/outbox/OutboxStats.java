@@ -0,0 +1,21 @@
+package jpashop.outbox;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * pending 은 아직 보내지 않은 이벤트 수, oldestPendingMillis 는 그중 가장 오래 기다린 시간,
+ * lastLagMillis 는 마지막 묶음에서 가장 오래된 이벤트가 생성부터 전송까지 걸린 시간,
+ * publishedPerSecond 는 최근 1분 평균 전송 수
+ */
+@Getter
+@AllArgsConstructor
+public class OutboxStats {
+
+    private long pending;
+    private long oldestPendingMillis;
+    private long lastLagMillis;
+    private long published;
+    private long failures;
+    private double publishedPerSecond;
+}
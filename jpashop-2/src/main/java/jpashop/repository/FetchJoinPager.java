@@ -0,0 +1,55 @@
+package jpashop.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Repository;
+
+import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * 컬렉션 fetch join 쿼리 페이징.
+ * 컬렉션을 fetch join 하면 row 가 늘어나서 SQL 로 페이징할 수 없고 Hibernate 가 메모리에서 페이징한다.
+ * 1단계에서 루트 엔티티의 id 만 SQL 로 페이징하고, 2단계에서 그 id 들만 fetch join 으로 가져온다.
+ */
+@Repository
+@RequiredArgsConstructor
+public class FetchJoinPager {
+
+    private final EntityManager em;
+
+    /**
+     * @param idJpql    id 만 조회하는 쿼리. 페이지 순서를 정하는 order by 를 포함해야 한다.
+     * @param fetchJpql fetch join 쿼리. id 목록을 :ids 파라미터로 받는다.
+     * @return idJpql 의 순서대로 정렬된 엔티티
+     */
+    public <T> List<T> page(String idJpql, String fetchJpql, Class<T> type,
+                            Function<T, Long> idGetter, int offset, int limit) {
+        List<Long> ids = em.createQuery(idJpql, Long.class)
+                .setFirstResult(offset)
+                .setMaxResults(limit)
+                .getResultList();
+        if (ids.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        List<T> fetched = em.createQuery(fetchJpql, type)
+                .setParameter("ids", ids)
+                .getResultList();
+
+        Map<Long, T> byId = new HashMap<>();
+        fetched.forEach(e -> byId.putIfAbsent(idGetter.apply(e), e));
+        List<T> result = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            T entity = byId.get(id);
+            if (entity != null) {
+                result.add(entity);
+            }
+        }
+        return result;
+    }
+}
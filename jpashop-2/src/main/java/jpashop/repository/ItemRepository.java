@@ -1,10 +1,16 @@
 package jpashop.repository;
 
+import jpashop.domain.item.Book;
 import jpashop.domain.item.Item;
+import jpashop.exception.NotEnoughStockException;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Repository;
 
 import javax.persistence.EntityManager;
+import javax.persistence.LockModeType;
+import javax.persistence.Query;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 
 @Repository
@@ -13,6 +19,9 @@ public class ItemRepository {
 
     private final EntityManager em;
 
+    /**
+     * id 가 있으면 merge 하므로 먼저 select 로 상품 전체를 읽는다. 값을 모두 알고 있으면 update(Book) 을 쓴다.
+     */
     public void save(Item item) {
         if (item.getId() == null) {
             em.persist(item);
@@ -21,6 +30,26 @@ public class ItemRepository {
         }
     }
 
+    /**
+     * 준영속 상품의 값으로 읽지 않고 바로 update 한다. 화면에서 받은 version 이 그대로일 때만 바꾸고 version 을 올린다.
+     * 영속성 컨텍스트를 거치지 않으므로 같은 트랜잭션에서 이미 읽은 상품은 바뀌지 않는다.
+     * @return 바뀐 행 수. 0 이면 없는 상품이거나 그 사이 다른 곳에서 바뀐 것이다.
+     */
+    public int update(Book book) {
+        return em.createQuery(
+                "update Book b set b.name = :name, b.price = :price, b.stockQuantity = :stockQuantity," +
+                        " b.author = :author, b.isbn = :isbn, b.version = b.version + 1" +
+                        " where b.id = :id and b.version = :version")
+                .setParameter("name", book.getName())
+                .setParameter("price", book.getPrice())
+                .setParameter("stockQuantity", book.getStockQuantity())
+                .setParameter("author", book.getAuthor())
+                .setParameter("isbn", book.getIsbn())
+                .setParameter("id", book.getId())
+                .setParameter("version", book.getVersion())
+                .executeUpdate();
+    }
+
     public Item findOne(Long id) {
         return em.find(Item.class, id);
     }
@@ -29,4 +58,80 @@ public class ItemRepository {
         return em.createQuery("select i from Item i", Item.class)
                 .getResultList();
     }
+
+    public List<Item> findAllByIds(Collection<Long> ids) {
+        if (ids.isEmpty()) {
+            return new ArrayList<>();
+        }
+        return em.createQuery("select i from Item i where i.id in :ids", Item.class)
+                .setParameter("ids", ids)
+                .getResultList();
+    }
+
+    /**
+     * in 쿼리 한 번으로 읽으면서 select ... for update 로 락을 잡는다.
+     * 항상 id 순서로 잠그기 때문에 여러 상품을 함께 주문해도 서로 엇갈려 기다리는 교착 상태가 생기지 않는다.
+     */
+    public List<Item> findAllForUpdate(Collection<Long> ids) {
+        if (ids.isEmpty()) {
+            return new ArrayList<>();
+        }
+        return em.createQuery("select i from Item i where i.id in :ids order by i.id", Item.class)
+                .setParameter("ids", ids)
+                .setLockMode(LockModeType.PESSIMISTIC_WRITE)
+                .getResultList();
+    }
+
+    /**
+     * 재고 예약. 조건부 update 한 번으로 재고를 줄이기 때문에 동시에 주문해도 갱신이 사라지거나 재고가 음수가 되지 않는다.
+     * 버전도 올려서 같은 상품을 읽어 둔 다른 트랜잭션(상품 수정, 주문 취소) 은 충돌로 실패한다.
+     * 영속성 컨텍스트의 상품도 줄어든 재고로 다시 읽어서 돌려준다.
+     */
+    public Item reserveStock(Long itemId, int count) {
+        int updated = em.createQuery(
+                "update Item i set i.stockQuantity = i.stockQuantity - :count, i.version = i.version + 1" +
+                        " where i.id = :itemId and i.stockQuantity >= :count")
+                .setParameter("count", count)
+                .setParameter("itemId", itemId)
+                .executeUpdate();
+        if (updated == 0) {
+            throw new NotEnoughStockException("수량 부족");
+        }
+
+        Item item = em.find(Item.class, itemId);
+        em.refresh(item);
+        return item;
+    }
+
+    /**
+     * 재고를 delta 만큼 더한다. 읽지 않고 바로 더하기 때문에 다른 변경을 덮어쓰지 않는다.
+     */
+    /**
+     * 주문들의 주문상품 수량만큼 상품별로 재고를 되돌린다. 상품 수와 상관없이 update 한 번이다.
+     * update 의 별칭이 서브쿼리에서 빠지지 않도록 native SQL 로 쓴다.
+     * @param excludedItemIds 되돌리지 않을 상품(재고 장부 상품 등)
+     * @return 바뀐 상품 수
+     */
+    public int restoreStock(Collection<Long> orderIds, Collection<Long> excludedItemIds) {
+        Query query = em.createNativeQuery(
+                "update item set stock_quantity = stock_quantity +" +
+                        " (select sum(oi.count) from order_item oi where oi.item_id = item.item_id and oi.order_id in (:orderIds))," +
+                        " version = version + 1" +
+                        " where item_id in (select oi.item_id from order_item oi where oi.order_id in (:orderIds))" +
+                        (excludedItemIds.isEmpty() ? "" : " and item_id not in (:excludedItemIds)"))
+                .setParameter("orderIds", orderIds);
+        if (!excludedItemIds.isEmpty()) {
+            query.setParameter("excludedItemIds", excludedItemIds);
+        }
+        return query.executeUpdate();
+    }
+
+    public int addStock(Long itemId, long delta) {
+        return em.createQuery(
+                "update Item i set i.stockQuantity = i.stockQuantity + :delta, i.version = i.version + 1" +
+                        " where i.id = :itemId")
+                .setParameter("delta", (int) delta)
+                .setParameter("itemId", itemId)
+                .executeUpdate();
+    }
 }
@@ -0,0 +1,138 @@
+package jpashop.repository;
+
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
+import org.hibernate.Session;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 가입한 회원 이름의 bloom filter. false 면 그 이름의 회원은 확실히 없으므로 중복 확인 쿼리를 건너뛴다.
+ * true 는 있을 수도 있다는 뜻이라 DB 에서 한 번 더 확인해야 한다(오탐률 false-positive-rate).
+ * 지울 수 없기 때문에 바뀌기 전 이름도 true 로 남는다.
+ * 서버가 뜰 때 회원 이름을 모두 읽어서 채우고, 그 전까지는 항상 true 다.
+ * MemberService 를 거치지 않고 넣은 회원은 모르므로 그런 경우 rebuild() 를 불러야 한다.
+ */
+@Slf4j
+@Repository
+public class MemberNameFilter {
+
+    private final EntityManager em;
+    private final TransactionTemplate transactionTemplate;
+    private final int bits;
+    private final int hashes;
+    private volatile AtomicLongArray words;
+    private volatile boolean loaded;
+
+    public MemberNameFilter(EntityManager em,
+                            PlatformTransactionManager transactionManager,
+                            @Value("${jpashop.member-name-filter.expected-names:1000000}") int expectedNames,
+                            @Value("${jpashop.member-name-filter.false-positive-rate:0.01}") double falsePositiveRate) {
+        this.em = em;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.setReadOnly(true);
+        //m = -n ln p / (ln 2)^2, k = m / n * ln 2
+        double ln2 = Math.log(2);
+        long m = (long) Math.ceil(-expectedNames * Math.log(falsePositiveRate) / (ln2 * ln2));
+        this.bits = (int) Math.min(Math.max(m, 64), Integer.MAX_VALUE - 63);
+        this.hashes = Math.max(1, (int) Math.round((double) bits / expectedNames * ln2));
+        this.words = new AtomicLongArray((bits + 63) / 64);
+    }
+
+    /**
+     * 회원 가입, 이름 변경이 커밋된 뒤 MemberService 에서 호출
+     */
+    public void add(String name) {
+        if (name == null) {
+            return;
+        }
+        AtomicLongArray target = words;
+        long hash = hash(name);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32) | 1;
+        for (int i = 0; i < hashes; i++) {
+            int bit = ((h1 + i * h2) & Integer.MAX_VALUE) % bits;
+            int word = bit >>> 6;
+            long mask = 1L << bit;
+            long current;
+            while (((current = target.get(word)) & mask) == 0) {
+                if (target.compareAndSet(word, current, current | mask)) {
+                    break;
+                }
+            }
+        }
+    }
+
+    /**
+     * @return false 면 이 이름의 회원은 없다
+     */
+    public boolean mightContain(String name) {
+        if (!loaded || name == null) {
+            return true;
+        }
+        AtomicLongArray target = words;
+        long hash = hash(name);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32) | 1;
+        for (int i = 0; i < hashes; i++) {
+            int bit = ((h1 + i * h2) & Integer.MAX_VALUE) % bits;
+            if ((target.get(bit >>> 6) & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        long start = System.nanoTime();
+        long count = transactionTemplate.execute(status -> {
+            long names = 0;
+            //회원이 많아도 엔티티를 만들지 않고 이름만 fetch size 단위로 읽는다.
+            ScrollableResults results = em.unwrap(Session.class)
+                    .createQuery("select m.name from Member m")
+                    .setFetchSize(1000)
+                    .scroll(ScrollMode.FORWARD_ONLY);
+            try {
+                while (results.next()) {
+                    add((String) results.get(0));
+                    names++;
+                }
+            } finally {
+                results.close();
+            }
+            return names;
+        });
+        loaded = true;
+        log.info("member name filter loaded names={} bits={} hashes={} millis={}",
+                count, bits, hashes, (System.nanoTime() - start) / 1_000_000);
+    }
+
+    /**
+     * 비우고 다시 채운다. 다시 채우는 동안은 항상 true 다.
+     */
+    public void rebuild() {
+        loaded = false;
+        words = new AtomicLongArray(words.length());
+        load();
+    }
+
+    //FNV-1a 64bit
+    private static long hash(String name) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : name.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b & 0xff;
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+}
@@ -0,0 +1,115 @@
+package jpashop.repository;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Repository;
+
+import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 회원 이름 부분 검색용 trigram 색인. like '%이름%' 대신 후보 회원 id 를 먼저 찾는다.
+ * 추가만 하기 때문에 바뀌기 전 이름도 후보로 남을 수 있다.
+ * 후보를 받은 쪽에서 like 조건을 한 번 더 걸어야 정확한 결과가 된다.
+ */
+@Repository
+public class MemberNameIndex {
+
+    static final int GRAM = 3;
+
+    private final EntityManager em;
+    private final int maxCandidates;
+    private final Map<String, Set<Long>> postings = new ConcurrentHashMap<>();
+    private volatile boolean loaded;
+
+    public MemberNameIndex(EntityManager em,
+                           @Value("${jpashop.member-name-index.max-candidates:1000}") int maxCandidates) {
+        this.em = em;
+        this.maxCandidates = maxCandidates;
+    }
+
+    /**
+     * 회원 가입, 이름 변경이 커밋된 뒤 MemberService 에서 호출
+     */
+    public void add(Long memberId, String name) {
+        if (memberId == null || name == null) {
+            return;
+        }
+        for (String gram : grams(name)) {
+            postings.computeIfAbsent(gram, g -> ConcurrentHashMap.newKeySet()).add(memberId);
+        }
+    }
+
+    /**
+     * @return 이름에 keyword 가 들어갈 수 있는 회원 id.
+     * 색인으로 거를 수 없으면(keyword 가 3글자 미만이거나, like 와일드카드(%, _) 가 들어있거나,
+     * 후보가 maxCandidates 보다 많으면) null
+     */
+    public Set<Long> findCandidates(String keyword) {
+        if (keyword == null || keyword.length() < GRAM) {
+            return null;
+        }
+        //검색어가 like 패턴으로 쓰이므로 와일드카드가 있으면 글자 그대로의 trigram 으로 거를 수 없다.
+        if (keyword.indexOf('%') >= 0 || keyword.indexOf('_') >= 0) {
+            return null;
+        }
+        if (!loaded) {
+            load();
+        }
+
+        List<Set<Long>> sets = new ArrayList<>();
+        for (String gram : grams(keyword)) {
+            Set<Long> ids = postings.get(gram);
+            if (ids == null) {
+                return Collections.emptySet();
+            }
+            sets.add(ids);
+        }
+        sets.sort((a, b) -> Integer.compare(a.size(), b.size()));
+        if (sets.get(0).size() > maxCandidates) {
+            return null;
+        }
+
+        Set<Long> candidates = new HashSet<>(sets.get(0));
+        for (int i = 1; i < sets.size() && !candidates.isEmpty(); i++) {
+            candidates.retainAll(sets.get(i));
+        }
+        return candidates;
+    }
+
+    /**
+     * MemberService 를 거치지 않고 회원을 넣었거나 바꿨다면 다시 만들어야 한다.
+     */
+    public synchronized void rebuild() {
+        loaded = false;
+        postings.clear();
+        load();
+    }
+
+    /**
+     * 처음 검색할 때 DB 의 회원 이름을 한 번 읽어 채운다.
+     * 읽는 동안 가입하는 회원은 MemberService 가 커밋 후 따로 추가한다.
+     */
+    private synchronized void load() {
+        if (loaded) {
+            return;
+        }
+        List<Object[]> members = em.createQuery("select m.id, m.name from Member m", Object[].class)
+                .getResultList();
+        members.forEach(row -> add((Long) row[0], (String) row[1]));
+        loaded = true;
+    }
+
+    static Set<String> grams(String text) {
+        Set<String> grams = new HashSet<>();
+        for (int i = 0; i + GRAM <= text.length(); i++) {
+            grams.add(text.substring(i, i + GRAM));
+        }
+        return grams;
+    }
+}
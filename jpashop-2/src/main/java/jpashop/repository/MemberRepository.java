@@ -8,4 +8,9 @@ import java.util.List;
 public interface MemberRepository extends JpaRepository<Member, Long> {
 
     List<Member> findByName(String name);
+
+    /**
+     * 엔티티를 읽지 않고 있는지만 확인한다(select ... limit 1).
+     */
+    boolean existsByName(String name);
 }
@@ -0,0 +1,63 @@
+package jpashop.repository;
+
+import jpashop.domain.OrderOutbox;
+import jpashop.domain.OrderStatus;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Repository;
+
+import javax.persistence.EntityManager;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+@RequiredArgsConstructor
+public class OrderOutboxRepository {
+
+    private final EntityManager em;
+
+    public void save(Long orderId, OrderStatus status) {
+        em.persist(new OrderOutbox(orderId, status));
+    }
+
+    /**
+     * 같은 상태의 이벤트를 한 번에 쌓는다. 바로 flush 해서 jdbc batch insert 로 보내고,
+     * 영속성 컨텍스트에 남지 않도록 떼어낸다.
+     */
+    public void saveAll(Collection<Long> orderIds, OrderStatus status) {
+        List<OrderOutbox> outboxes = new ArrayList<>(orderIds.size());
+        for (Long orderId : orderIds) {
+            OrderOutbox outbox = new OrderOutbox(orderId, status);
+            em.persist(outbox);
+            outboxes.add(outbox);
+        }
+        em.flush();
+        outboxes.forEach(em::detach);
+    }
+
+    public List<OrderOutbox> findOldest(int limit) {
+        return em.createQuery("select o from OrderOutbox o order by o.id", OrderOutbox.class)
+                .setMaxResults(limit)
+                .getResultList();
+    }
+
+    public long count() {
+        return em.createQuery("select count(o) from OrderOutbox o", Long.class)
+                .getSingleResult();
+    }
+
+    /**
+     * 가장 오래 기다린 이벤트의 생성 시각. 없으면 null
+     */
+    public LocalDateTime findOldestCreatedAt() {
+        return em.createQuery("select min(o.createdAt) from OrderOutbox o", LocalDateTime.class)
+                .getSingleResult();
+    }
+
+    public int deleteByIds(Collection<Long> ids) {
+        return em.createQuery("delete from OrderOutbox o where o.id in :ids")
+                .setParameter("ids", ids)
+                .executeUpdate();
+    }
+}
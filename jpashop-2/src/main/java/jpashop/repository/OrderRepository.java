@@ -1,8 +1,12 @@
 package jpashop.repository;
 
+import jpashop.domain.DeliveryStatus;
 import jpashop.domain.Member;
 import jpashop.domain.Order;
+import jpashop.domain.OrderStatus;
 import lombok.RequiredArgsConstructor;
+import org.hibernate.FlushMode;
+import org.hibernate.Session;
 import org.springframework.stereotype.Repository;
 import org.springframework.util.StringUtils;
 
@@ -10,18 +14,61 @@ import javax.persistence.EntityManager;
 import javax.persistence.TypedQuery;
 import javax.persistence.criteria.*;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 @Repository
 @RequiredArgsConstructor
 public class OrderRepository {
 
+    //OrderSearch 에서 값이 있는 조건 조합(상태 1, 회원 이름 2, 후보 회원 id 4) 별 JPQL
+    private static final String[] SEARCH_JPQL = new String[8];
+
+    static {
+        for (int fields = 0; fields < SEARCH_JPQL.length; fields++) {
+            List<String> where = new ArrayList<>();
+            if ((fields & 1) != 0) {
+                where.add("o.status = :status");
+            }
+            if ((fields & 2) != 0) {
+                where.add("m.name like :name");
+            }
+            if ((fields & 4) != 0) {
+                where.add("m.id in :memberIds");
+            }
+            SEARCH_JPQL[fields] = "select o from Order o join o.member m"
+                    + (where.isEmpty() ? "" : " where " + String.join(" and ", where));
+        }
+    }
+
     private final EntityManager em;
+    private final FetchJoinPager fetchJoinPager;
+    private final MemberNameIndex memberNameIndex;
 
     public void save(Order order) {
         em.persist(order);
     }
 
+    /**
+     * 쓰기 지연된 SQL 을 내보내고 영속성 컨텍스트를 비운다. 대량 저장에서 청크 사이에 호출한다.
+     */
+    public void flushAndClear() {
+        em.flush();
+        em.clear();
+    }
+
+    /**
+     * 이 트랜잭션에서는 쿼리 전에 자동으로 flush 하지 않고 커밋 때 한 번만 한다.
+     * 쓰기 지연된 insert 가 쿼리마다 끊기지 않고 jdbc batch 로 묶인다.
+     * 이미 영속 상태인 엔티티는 쿼리 결과보다 메모리 값이 우선이라 재고 확인은 그대로 맞다.
+     */
+    public void flushOnCommit() {
+        em.unwrap(Session.class).setHibernateFlushMode(FlushMode.COMMIT);
+    }
+
     public Order findOne(Long id) {
         return em.find(Order.class, id);
     }
@@ -50,6 +97,100 @@ public class OrderRepository {
         return query.getResultList();
     }
 
+    /**
+     * findAllByCriteria 와 같은 검색. 조건 조합마다 미리 만든 JPQL 을 쓰기 때문에
+     * 매번 Criteria 트리를 만들지 않고, 같은 문자열이라 Hibernate 쿼리 플랜 캐시에서 바로 찾는다.
+     * 회원 이름은 MemberNameIndex 로 후보 회원 id 를 먼저 찾아서 member 전체를 훑지 않는다.
+     */
+    public List<Order> findAllBySearch(OrderSearch orderSearch) {
+        boolean hasStatus = orderSearch.getOrderStatus() != null;
+        boolean hasName = StringUtils.hasText(orderSearch.getMemberName());
+        Set<Long> memberIds = hasName ? memberNameIndex.findCandidates(orderSearch.getMemberName()) : null;
+        if (memberIds != null && memberIds.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        int fields = (hasStatus ? 1 : 0) | (hasName ? 2 : 0) | (memberIds != null ? 4 : 0);
+        TypedQuery<Order> query = em.createQuery(SEARCH_JPQL[fields], Order.class)
+                .setMaxResults(1000); //최대 1000건
+        if (hasStatus) {
+            query.setParameter("status", orderSearch.getOrderStatus());
+        }
+        if (hasName) {
+            query.setParameter("name", "%" + orderSearch.getMemberName() + "%");
+        }
+        if (memberIds != null) {
+            query.setParameter("memberIds", memberIds);
+        }
+        return query.getResultList();
+    }
+
+    /**
+     * 상품이 들어 있는 주문 중 아직 취소되지 않은 주문 id
+     */
+    public List<Long> findOrderedIdsByItem(Long itemId) {
+        return em.createQuery("select distinct oi.order.id from OrderItem oi" +
+                " where oi.item.id = :itemId and oi.order.status = :status", Long.class)
+                .setParameter("itemId", itemId)
+                .setParameter("status", OrderStatus.ORDER)
+                .getResultList();
+    }
+
+    /**
+     * ids 중 취소할 수 있는 주문(주문 상태이고 배송 완료 전) id. 배송 상태가 아직 없는(null) 주문도 취소할 수 있다.
+     */
+    public List<Long> findCancellableIds(Collection<Long> ids) {
+        return em.createQuery("select o.id from Order o left join o.delivery d" +
+                " where o.id in :ids and o.status = :status" +
+                " and (d.status is null or d.status <> :comp)", Long.class)
+                .setParameter("ids", ids)
+                .setParameter("status", OrderStatus.ORDER)
+                .setParameter("comp", DeliveryStatus.COMP)
+                .getResultList();
+    }
+
+    /**
+     * ids 중 배송 완료라서 취소할 수 없는 주문 수
+     */
+    public long countDelivered(Collection<Long> ids) {
+        return em.createQuery("select count(o) from Order o join o.delivery d" +
+                " where o.id in :ids and o.status = :status and d.status = :comp", Long.class)
+                .setParameter("ids", ids)
+                .setParameter("status", OrderStatus.ORDER)
+                .setParameter("comp", DeliveryStatus.COMP)
+                .getSingleResult();
+    }
+
+    /**
+     * 주문 상태인 주문만 update 한 번으로 취소한다. 조건을 다시 확인하기 때문에 그 사이 배송 완료되거나
+     * 이미 취소된 주문은 바뀌지 않는다. 영속성 컨텍스트에 이미 올라온 주문은 갱신되지 않는다.
+     * @return 취소한 주문 수
+     */
+    public int cancelAll(Collection<Long> ids) {
+        return em.createQuery("update Order o set o.status = :cancel" +
+                " where o.id in :ids and o.status = :status" +
+                " and not exists (select d.id from Delivery d where d.id = o.delivery.id and d.status = :comp)")
+                .setParameter("cancel", OrderStatus.CANCEL)
+                .setParameter("ids", ids)
+                .setParameter("status", OrderStatus.ORDER)
+                .setParameter("comp", DeliveryStatus.COMP)
+                .executeUpdate();
+    }
+
+    /**
+     * 주문들의 상품별 주문 수량 합계
+     */
+    public Map<Long, Long> sumCountByItem(Collection<Long> orderIds) {
+        List<Object[]> rows = em.createQuery("select oi.item.id, sum(oi.count) from OrderItem oi" +
+                " where oi.order.id in :orderIds" +
+                " group by oi.item.id", Object[].class)
+                .setParameter("orderIds", orderIds)
+                .getResultList();
+        Map<Long, Long> counts = new HashMap<>();
+        rows.forEach(row -> counts.put((Long) row[0], ((Number) row[1]).longValue()));
+        return counts;
+    }
+
     public List<Order> findAllWithMemberDelivery() {
         return em.createQuery("select o from Order o" +
                 " join fetch o.member m" +
@@ -67,6 +208,21 @@ public class OrderRepository {
                 .getResultList();
     }
 
+    /**
+     * 주문상품까지 fetch join 하면서 페이징. 주문상품이 없는 주문도 페이지에서 빠지지 않도록 left join 한다.
+     */
+    public List<Order> findAllWithItem(int offset, int limit) {
+        return fetchJoinPager.page(
+                "select o.id from Order o order by o.id",
+                "select distinct o from Order o" +
+                        " join fetch o.member m" +
+                        " join fetch o.delivery d" +
+                        " left join fetch o.orderItems oi" +
+                        " left join fetch oi.item i" +
+                        " where o.id in :ids",
+                Order.class, Order::getId, offset, limit);
+    }
+
     public List<Order> findAllWithMemberDelivery(int offset, int limit) {
         return em.createQuery("select o from Order o" +
                 " join fetch o.member m" +
@@ -75,4 +231,27 @@ public class OrderRepository {
                 .setMaxResults(limit)
                 .getResultList();
     }
+
+    /**
+     * (order_date, order_id) 기준 keyset 페이징.
+     * offset 만큼 읽고 버리지 않고 인덱스에서 cursor 다음 위치부터 읽기 때문에 페이지 깊이와 상관없이 비용이 같다.
+     */
+    public List<Order> findAllWithMemberDelivery(OrderCursor cursor, int limit) {
+        String jpql = "select o from Order o" +
+                " join fetch o.member m" +
+                " join fetch o.delivery d";
+        if (cursor != null) {
+            jpql += " where o.orderDate >= :orderDate" +
+                    " and (o.orderDate > :orderDate or o.id > :orderId)";
+        }
+        jpql += " order by o.orderDate, o.id";
+
+        TypedQuery<Order> query = em.createQuery(jpql, Order.class);
+        if (cursor != null) {
+            query.setParameter("orderDate", cursor.getOrderDate())
+                    .setParameter("orderId", cursor.getOrderId());
+        }
+        return query.setMaxResults(limit)
+                .getResultList();
+    }
 }
@@ -0,0 +1,52 @@
+package jpashop.repository;
+
+import jpashop.domain.StockJournal;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Repository;
+
+import javax.persistence.EntityManager;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+@RequiredArgsConstructor
+public class StockJournalRepository {
+
+    private final EntityManager em;
+
+    public void save(StockJournal journal) {
+        em.persist(journal);
+    }
+
+    public List<StockJournal> findOldest(int limit) {
+        return em.createQuery("select j from StockJournal j order by j.id", StockJournal.class)
+                .setMaxResults(limit)
+                .getResultList();
+    }
+
+    /**
+     * 아직 item 테이블에 반영하지 않은 변경분 합계
+     */
+    public long sumDelta(Long itemId) {
+        Long sum = em.createQuery("select sum(j.delta) from StockJournal j where j.itemId = :itemId", Long.class)
+                .setParameter("itemId", itemId)
+                .getSingleResult();
+        return sum == null ? 0 : sum;
+    }
+
+    /**
+     * 재고를 덮어쓸 때 반영 전 변경분을 버린다.
+     */
+    public int deleteByItem(Long itemId) {
+        return em.createQuery("delete from StockJournal j where j.itemId = :itemId")
+                .setParameter("itemId", itemId)
+                .executeUpdate();
+    }
+
+    public int deleteByItemAndIds(Long itemId, Collection<Long> ids) {
+        return em.createQuery("delete from StockJournal j where j.itemId = :itemId and j.id in :ids")
+                .setParameter("itemId", itemId)
+                .setParameter("ids", ids)
+                .executeUpdate();
+    }
+}
@@ -0,0 +1,35 @@
+package jpashop.repository.order.query;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 주문 x 주문상품 flat row 를 주문 -> 주문상품 트리로 조립한다.
+ * 주문 id 로 묶을 때 키용 DTO 를 만들지 않고, 결과 순서는 쿼리 결과에서 주문이 처음 나온 순서를 따른다.
+ */
+public class OrderFlatAssembler {
+
+    private OrderFlatAssembler() {
+    }
+
+    public static List<OrderQueryDto> assemble(List<OrderFlatDto> flats) {
+        LongIntHashMap positions = new LongIntHashMap(flats.size());
+        List<OrderQueryDto> orders = new ArrayList<>();
+        for (OrderFlatDto flat : flats) {
+            int position = positions.get(flat.getOrderId());
+            OrderQueryDto order;
+            if (position < 0) {
+                order = new OrderQueryDto(flat.getOrderId(), flat.getName(), flat.getOrderDate(),
+                        flat.getOrderStatus(), flat.getAddress(), new ArrayList<>());
+                positions.put(flat.getOrderId(), orders.size());
+                orders.add(order);
+            } else {
+                order = orders.get(position);
+            }
+            order.getOrderItems().add(new OrderItemQueryDto(flat.getOrderId(),
+                    flat.getItemName(), flat.getOrderPrice(), flat.getCount()));
+            order.setTotalPrice(order.getTotalPrice() + flat.getOrderPrice() * flat.getCount());
+        }
+        return orders;
+    }
+}
@@ -0,0 +1,99 @@
+package jpashop.repository.order.query;
+
+import org.hibernate.FlushMode;
+import org.hibernate.Session;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Repository;
+
+import javax.annotation.PreDestroy;
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+/**
+ * 주문상품을 주문 id chunk 단위로 나눠서 여러 스레드에서 조회한다.
+ * in 절 파라미터 수를 chunkSize 로 제한하고, chunk 마다 읽기 전용 EntityManager 를 따로 연다.
+ * 호출한 쪽과 다른 커넥션을 쓰기 때문에 아직 커밋되지 않은 데이터는 보이지 않는다.
+ */
+@Repository
+public class OrderItemParallelLoader {
+
+    private final EntityManagerFactory emf;
+    private final int chunkSize;
+    private final ExecutorService executor;
+
+    public OrderItemParallelLoader(EntityManagerFactory emf,
+                                   @Value("${jpashop.order-query.chunk-size:1000}") int chunkSize,
+                                   @Value("${jpashop.order-query.threads:4}") int threads) {
+        this.emf = emf;
+        this.chunkSize = chunkSize;
+        AtomicInteger sequence = new AtomicInteger();
+        //큐가 차면 호출한 스레드에서 직접 실행해서 작업이 무한정 쌓이지 않게 한다.
+        this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(threads * 4),
+                r -> {
+                    Thread thread = new Thread(r, "order-item-loader-" + sequence.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+    public Map<Long, List<OrderItemQueryDto>> findOrderItemMap(List<Long> orderIds) {
+        List<Future<List<OrderItemQueryDto>>> futures = new ArrayList<>();
+        for (int from = 0; from < orderIds.size(); from += chunkSize) {
+            List<Long> chunk = orderIds.subList(from, Math.min(from + chunkSize, orderIds.size()));
+            futures.add(executor.submit(() -> findOrderItems(chunk)));
+        }
+
+        Map<Long, List<OrderItemQueryDto>> orderItemMap = new HashMap<>();
+        for (Future<List<OrderItemQueryDto>> future : futures) {
+            orderItemMap.putAll(getResult(future).stream()
+                    .collect(Collectors.groupingBy(OrderItemQueryDto::getOrderId)));
+        }
+        return orderItemMap;
+    }
+
+    private List<OrderItemQueryDto> findOrderItems(List<Long> orderIds) {
+        EntityManager em = emf.createEntityManager();
+        try {
+            Session session = em.unwrap(Session.class);
+            session.setDefaultReadOnly(true);
+            session.setHibernateFlushMode(FlushMode.MANUAL);
+            return em.createQuery(
+                    "select new jpashop.repository.order.query.OrderItemQueryDto(oi.order.id, i.name, oi.orderPrice, oi.count)" +
+                            " from OrderItem oi" +
+                            " join oi.item i" +
+                            " where oi.order.id in :orderIds", OrderItemQueryDto.class)
+                    .setParameter("orderIds", orderIds)
+                    .getResultList();
+        } finally {
+            em.close();
+        }
+    }
+
+    private static <T> T getResult(Future<T> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("주문상품 조회가 중단되었습니다.", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
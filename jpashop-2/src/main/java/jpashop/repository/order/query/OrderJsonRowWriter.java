@@ -0,0 +1,112 @@
+package jpashop.repository.order.query;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import org.springframework.jdbc.core.RowCallbackHandler;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * 주문 id 순으로 정렬된 주문 + 주문상품 flat row 를 OrderQueryDto 와 같은 모양의 JSON 으로 바로 쓴다.
+ * 같은 주문의 row 는 연속으로 들어온다고 가정하고, 주문 id 가 바뀔 때 이전 주문을 닫는다.
+ */
+class OrderJsonRowWriter implements RowCallbackHandler {
+
+    private final JsonGenerator generator;
+    private long currentOrderId;
+    private boolean inOrder;
+    private boolean hasItems;
+    private long totalPrice;
+    private long count;
+
+    OrderJsonRowWriter(JsonGenerator generator) {
+        this.generator = generator;
+    }
+
+    @Override
+    public void processRow(ResultSet rs) throws SQLException {
+        try {
+            long orderId = rs.getLong("order_id");
+            if (!inOrder || orderId != currentOrderId) {
+                endOrder();
+                startOrder(rs, orderId);
+            }
+
+            //주문상품이 없는 주문은 left join 으로 주문상품 컬럼이 모두 null 인 row 하나만 온다.
+            if (rs.getObject("order_item_id") == null) {
+                return;
+            }
+            if (!hasItems) {
+                generator.writeArrayFieldStart("orderItems");
+                hasItems = true;
+            }
+            int orderPrice = rs.getInt("order_price");
+            int itemCount = rs.getInt("count");
+            generator.writeStartObject();
+            generator.writeStringField("itemName", rs.getString("item_name"));
+            generator.writeNumberField("orderPrice", orderPrice);
+            generator.writeNumberField("count", itemCount);
+            generator.writeEndObject();
+            totalPrice += (long) orderPrice * itemCount;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void startOrder(ResultSet rs, long orderId) throws SQLException, IOException {
+        currentOrderId = orderId;
+        inOrder = true;
+        hasItems = false;
+        totalPrice = 0;
+        count++;
+
+        generator.writeStartObject();
+        generator.writeNumberField("orderId", orderId);
+        generator.writeStringField("name", rs.getString("name"));
+        Timestamp orderDate = rs.getTimestamp("order_date");
+        generator.writeStringField("orderDate", orderDate == null ? null
+                : DateTimeFormatter.ISO_LOCAL_DATE_TIME.format(orderDate.toLocalDateTime()));
+        generator.writeStringField("orderStatus", rs.getString("status"));
+
+        String city = rs.getString("city");
+        String street = rs.getString("street");
+        String zipcode = rs.getString("zipcode");
+        //임베디드 타입은 컬럼이 모두 null 이면 null 로 읽힌다.
+        if (city == null && street == null && zipcode == null) {
+            generator.writeNullField("address");
+        } else {
+            generator.writeObjectFieldStart("address");
+            generator.writeStringField("city", city);
+            generator.writeStringField("street", street);
+            generator.writeStringField("zipcode", zipcode);
+            generator.writeEndObject();
+        }
+    }
+
+    private void endOrder() throws IOException {
+        if (!inOrder) {
+            return;
+        }
+        if (hasItems) {
+            generator.writeEndArray();
+        } else {
+            generator.writeNullField("orderItems");
+        }
+        generator.writeNumberField("totalPrice", (int) totalPrice);
+        generator.writeEndObject();
+    }
+
+    /**
+     * 마지막 주문을 닫는다.
+     * @return 쓴 주문 수
+     */
+    long finish() throws IOException {
+        endOrder();
+        inOrder = false;
+        return count;
+    }
+}
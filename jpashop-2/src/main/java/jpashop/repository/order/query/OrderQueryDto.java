@@ -18,6 +18,7 @@ public class OrderQueryDto {
     private OrderStatus orderStatus;
     private Address address;
     private List<OrderItemQueryDto> orderItems;
+    private int totalPrice;
 
     public OrderQueryDto(Long orderId, String name, LocalDateTime orderDate, OrderStatus orderStatus, Address address) {
         this.orderId = orderId;
@@ -27,6 +28,11 @@ public class OrderQueryDto {
         this.address = address;
     }
 
+    public OrderQueryDto(Long orderId, String name, LocalDateTime orderDate, OrderStatus orderStatus, Address address, Long totalPrice) {
+        this(orderId, name, orderDate, orderStatus, address);
+        this.totalPrice = totalPrice == null ? 0 : totalPrice.intValue();
+    }
+
     public OrderQueryDto(Long orderId, String name, LocalDateTime orderDate, OrderStatus orderStatus, Address address, List<OrderItemQueryDto> orderItems) {
         this.orderId = orderId;
         this.name = name;
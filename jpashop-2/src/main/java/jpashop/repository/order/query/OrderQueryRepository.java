@@ -1,18 +1,32 @@
 package jpashop.repository.order.query;
 
+import com.fasterxml.jackson.core.JsonGenerator;
 import lombok.RequiredArgsConstructor;
+import org.hibernate.query.Query;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Repository;
 
 import javax.persistence.EntityManager;
+import java.io.IOException;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Repository
 @RequiredArgsConstructor
 public class OrderQueryRepository {
 
     private final EntityManager em;
+    private final OrderItemParallelLoader orderItemParallelLoader;
+    private final JdbcTemplate jdbcTemplate;
 
     public List<OrderQueryDto> findOrderQueryDtos() {
         List<OrderQueryDto> orders = findOrders();
@@ -31,9 +45,20 @@ public class OrderQueryRepository {
         return orders;
     }
 
+    /**
+     * findAllByDto_optimization 과 같지만 주문상품을 chunk 로 나눠서 병렬로 조회한다.
+     * 주문 순서는 findOrders 결과 그대로 유지된다.
+     */
+    public List<OrderQueryDto> findAllByDto_parallel() {
+        List<OrderQueryDto> orders = findOrders();
+        Map<Long, List<OrderItemQueryDto>> orderItemMap = orderItemParallelLoader.findOrderItemMap(toOrderIds(orders));
+        orders.forEach(o -> o.setOrderItems(orderItemMap.get(o.getOrderId())));
+        return orders;
+    }
+
     private Map<Long, List<OrderItemQueryDto>> findOrderItemMap(List<Long> orderIds) {
         List<OrderItemQueryDto> orderItems = em.createQuery(
-                "select new jpabook.jpashop.repository.order.query.OrderItemQueryDto(oi.order.id, i.name, oi.orderPrice, oi.count)" +
+                "select new jpashop.repository.order.query.OrderItemQueryDto(oi.order.id, i.name, oi.orderPrice, oi.count)" +
                         " from OrderItem oi" +
                         " join oi.item i" +
                         " where oi.order.id in :orderIds", OrderItemQueryDto.class)
@@ -52,7 +77,7 @@ public class OrderQueryRepository {
 
     private List<OrderItemQueryDto> findOrderItems(Long orderId) {
         return em.createQuery(
-                "select new jpabook.jpashop.repository.order.query.OrderItemQueryDto(oi.order.id, i.name, oi.orderPrice, oi.count)" +
+                "select new jpashop.repository.order.query.OrderItemQueryDto(oi.order.id, i.name, oi.orderPrice, oi.count)" +
                         " from OrderItem oi" +
                         " join oi.item i" +
                         " where oi.order.id = :orderId", OrderItemQueryDto.class)
@@ -62,17 +87,38 @@ public class OrderQueryRepository {
 
     public List<OrderQueryDto> findOrders() {
         return em.createQuery(
-                "select new jpabook.jpashop.repository.order.query.OrderQueryDto(o.id, m.name, o.orderDate, o.status, d.address)" +
+                "select new jpashop.repository.order.query.OrderQueryDto(o.id, m.name, o.orderDate, o.status, d.address," +
+                        " (select sum(oi.orderPrice * oi.count) from OrderItem oi where oi.order = o))" +
                         " from Order o" +
                         " join o.member m" +
                         " join o.delivery d", OrderQueryDto.class)
                 .getResultList();
     }
 
+    /**
+     * 주문 id 별 주문 금액 합계. 주문상품 엔티티를 읽지 않고 DB 에서 한 번에 계산한다.
+     */
+    public Map<Long, Integer> findTotalPrices(Collection<Long> orderIds) {
+        Map<Long, Integer> totalPrices = new HashMap<>();
+        if (orderIds.isEmpty()) {
+            return totalPrices;
+        }
+
+        List<Object[]> rows = em.createQuery(
+                "select oi.order.id, sum(oi.orderPrice * oi.count)" +
+                        " from OrderItem oi" +
+                        " where oi.order.id in :orderIds" +
+                        " group by oi.order.id", Object[].class)
+                .setParameter("orderIds", orderIds)
+                .getResultList();
+        rows.forEach(row -> totalPrices.put((Long) row[0], ((Number) row[1]).intValue()));
+        return totalPrices;
+    }
+
     public List<OrderFlatDto> findAllByDto_flat() {
         return em.createQuery(
                 "select new " +
-                        " jpabook.jpashop.repository.order.query.OrderFlatDto(o.id, m.name, o.orderDate, o.status, m.address, i.name, oi.orderPrice, oi.count)" +
+                        " jpashop.repository.order.query.OrderFlatDto(o.id, m.name, o.orderDate, o.status, m.address, i.name, oi.orderPrice, oi.count)" +
                         " from Order o" +
                         " join o.member m" +
                         " join o.delivery d" +
@@ -80,4 +126,67 @@ public class OrderQueryRepository {
                         " join oi.item i", OrderFlatDto.class)
                 .getResultList();
     }
+
+    /**
+     * 주문을 fetchSize 건씩 읽어서 한 건씩 넘겨준다.
+     * 주문은 PK 순서로 흘려 읽고, 주문상품은 fetchSize 건마다 in 쿼리 한 번으로 채운다.
+     * 전체 결과를 List 로 모으지 않기 때문에 주문 수와 상관없이 메모리 사용량이 일정하다.
+     */
+    public void streamOrderQueryDtos(int fetchSize, Consumer<OrderQueryDto> consumer) {
+        @SuppressWarnings("unchecked")
+        Query<OrderQueryDto> query = em.createQuery(
+                "select new jpashop.repository.order.query.OrderQueryDto(o.id, m.name, o.orderDate, o.status, d.address," +
+                        " (select sum(oi.orderPrice * oi.count) from OrderItem oi where oi.order = o))" +
+                        " from Order o" +
+                        " join o.member m" +
+                        " join o.delivery d" +
+                        " order by o.id", OrderQueryDto.class)
+                .unwrap(Query.class);
+
+        try (Stream<OrderQueryDto> rows = query
+                .setFetchSize(fetchSize)
+                .setReadOnly(true)
+                .stream()) {
+            List<OrderQueryDto> chunk = new ArrayList<>(fetchSize);
+            Iterator<OrderQueryDto> iterator = rows.iterator();
+            while (iterator.hasNext()) {
+                chunk.add(iterator.next());
+                if (chunk.size() == fetchSize || !iterator.hasNext()) {
+                    Map<Long, List<OrderItemQueryDto>> orderItemMap = findOrderItemMap(toOrderIds(chunk));
+                    chunk.forEach(o -> {
+                        o.setOrderItems(orderItemMap.getOrDefault(o.getOrderId(), new ArrayList<>()));
+                        consumer.accept(o);
+                    });
+                    chunk.clear();
+                }
+            }
+        }
+    }
+
+    /**
+     * findAllByDto_optimization 과 같은 결과를 DTO 없이 JSON 배열로 바로 쓴다.
+     * 주문 + 주문상품을 JDBC 로 한 번에 읽고, ResultSet 한 row 씩 generator 에 옮긴다.
+     * @return 쓴 주문 수
+     */
+    public long writeAllByJdbc(JsonGenerator generator, int fetchSize) throws IOException {
+        OrderJsonRowWriter rowWriter = new OrderJsonRowWriter(generator);
+        generator.writeStartArray();
+        jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(
+                    "select o.order_id, m.name, o.order_date, o.status, d.city, d.street, d.zipcode," +
+                            " oi.order_item_id, i.name as item_name, oi.order_price, oi.count" +
+                            " from orders o" +
+                            " join member m on m.member_id = o.member_id" +
+                            " join delivery d on d.delivery_id = o.delivery_id" +
+                            " left join order_item oi on oi.order_id = o.order_id" +
+                            " left join item i on i.item_id = oi.item_id" +
+                            " order by o.order_id",
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            ps.setFetchSize(fetchSize);
+            return ps;
+        }, rowWriter);
+        long count = rowWriter.finish();
+        generator.writeEndArray();
+        return count;
+    }
 }
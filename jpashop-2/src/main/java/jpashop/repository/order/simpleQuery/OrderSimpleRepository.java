@@ -14,7 +14,8 @@ public class OrderSimpleRepository {
 
     public List<OrderSimpleQueryDto> findOrderDtos() {
         return em.createQuery(
-                "select new jpabook.jpashop.repository.order.simpleQuery.OrderSimpleQueryDto(o.id, m.name, o.orderDate, o.status, d.address)" +
+                "select new jpashop.repository.order.simpleQuery.OrderSimpleQueryDto(o.id, m.name, o.orderDate, o.status, d.address," +
+                        " (select sum(oi.orderPrice * oi.count) from OrderItem oi where oi.order = o)) " +
                         "from Order o " +
                         "join o.member m " +
                         "join o.delivery d", OrderSimpleQueryDto.class
@@ -0,0 +1,65 @@
+package jpashop.repository.order.summary;
+
+import jpashop.domain.Order;
+import jpashop.domain.OrderStatus;
+import jpashop.domain.OrderSummary;
+import jpashop.repository.order.query.OrderFlatAssembler;
+import jpashop.repository.order.query.OrderFlatDto;
+import jpashop.repository.order.query.OrderQueryDto;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Repository;
+
+import javax.persistence.EntityManager;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+@RequiredArgsConstructor
+public class OrderSummaryRepository {
+
+    private final EntityManager em;
+
+    public void save(Order order) {
+        OrderSummary.createOrderSummaries(order).forEach(em::persist);
+    }
+
+    public int updateStatus(Long orderId, OrderStatus status) {
+        return em.createQuery("update OrderSummary s set s.orderStatus = :status where s.orderId = :orderId")
+                .setParameter("status", status)
+                .setParameter("orderId", orderId)
+                .executeUpdate();
+    }
+
+    public int updateStatus(Collection<Long> orderIds, OrderStatus status) {
+        return em.createQuery("update OrderSummary s set s.orderStatus = :status where s.orderId in :orderIds")
+                .setParameter("status", status)
+                .setParameter("orderIds", orderIds)
+                .executeUpdate();
+    }
+
+    public int updateMemberName(Long memberId, String memberName) {
+        return em.createQuery("update OrderSummary s set s.memberName = :memberName where s.memberId = :memberId")
+                .setParameter("memberName", memberName)
+                .setParameter("memberId", memberId)
+                .executeUpdate();
+    }
+
+    public int updateItemName(Long itemId, String itemName) {
+        return em.createQuery("update OrderSummary s set s.itemName = :itemName where s.itemId = :itemId")
+                .setParameter("itemName", itemName)
+                .setParameter("itemId", itemId)
+                .executeUpdate();
+    }
+
+    /**
+     * order_summary 하나만 (order_id, order_item_id) 인덱스 순서로 읽어서 조립한다.
+     */
+    public List<OrderQueryDto> findOrderQueryDtos() {
+        List<OrderFlatDto> flats = em.createQuery(
+                "select new jpashop.repository.order.query.OrderFlatDto(s.orderId, s.memberName, s.orderDate, s.orderStatus, s.address, s.itemName, s.orderPrice, s.count)" +
+                        " from OrderSummary s" +
+                        " order by s.orderId, s.id", OrderFlatDto.class)
+                .getResultList();
+        return OrderFlatAssembler.assemble(flats);
+    }
+}
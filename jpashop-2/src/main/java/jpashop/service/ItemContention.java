@@ -0,0 +1,18 @@
+package jpashop.service;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * 상품별 낙관적 락 충돌 통계.
+ * conflicts 는 버전 충돌이 난 횟수, retries 는 다시 시도한 횟수, giveUps 는 재시도를 다 쓰고 실패한 횟수
+ */
+@Getter
+@AllArgsConstructor
+public class ItemContention {
+
+    private Long itemId;
+    private long conflicts;
+    private long retries;
+    private long giveUps;
+}
@@ -1,7 +1,9 @@
 package jpashop.service;
 
+import jpashop.domain.item.Book;
 import jpashop.domain.item.Item;
 import jpashop.repository.ItemRepository;
+import jpashop.repository.order.summary.OrderSummaryRepository;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -15,6 +17,8 @@ import java.util.List;
 public class ItemService {
 
     private final ItemRepository itemRepository;
+    private final StockLedger stockLedger;
+    private final OrderSummaryRepository orderSummaryRepository;
 
     @Transactional
     public void saveItem(Item item) {
@@ -27,6 +31,27 @@ public class ItemService {
         findItem.setName(name);
         findItem.setPrice(price);
         findItem.setStockQuantity(stockQuantity);
+        orderSummaryRepository.updateItemName(itemId, name);
+        if (stockLedger.covers(itemId)) {
+            stockLedger.overwritten(itemId);
+        }
+    }
+
+    /**
+     * 수정 화면에서 받은 값과 version 으로 select 없이 update 한다.
+     * @return 바뀐 행 수. 0 이면 화면을 연 뒤 다른 곳에서 상품이 바뀐 것이다.
+     */
+    @Transactional
+    public int updateBook(Book book) {
+        int updated = itemRepository.update(book);
+        if (updated == 0) {
+            return 0;
+        }
+        orderSummaryRepository.updateItemName(book.getId(), book.getName());
+        if (stockLedger.covers(book.getId())) {
+            stockLedger.overwritten(book.getId());
+        }
+        return updated;
     }
 
     public List<Item> findItems() {
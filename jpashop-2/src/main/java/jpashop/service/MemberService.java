@@ -1,10 +1,18 @@
 package jpashop.service;
 
 import jpashop.domain.Member;
+import jpashop.domain.MemberChangedEvent;
+import jpashop.repository.MemberNameFilter;
+import jpashop.repository.MemberNameIndex;
 import jpashop.repository.MemberRepository;
+import jpashop.repository.order.summary.OrderSummaryRepository;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.util.List;
 
@@ -14,24 +22,35 @@ import java.util.List;
 public class MemberService {
 
     private final MemberRepository memberRepository;
+    private final MemberNameFilter memberNameFilter;
+    private final MemberNameIndex memberNameIndex;
+    private final OrderSummaryRepository orderSummaryRepository;
+    private final ApplicationEventPublisher eventPublisher;
 
     /**
      * 회원 가입
      */
     @Transactional
     public Long join(Member member) {
-        validateDuplicateMember(member);
-        memberRepository.save(member);
+        validateDuplicateName(member.getName());
+        try {
+            memberRepository.saveAndFlush(member);
+        } catch (DataIntegrityViolationException e) {
+            //동시에 같은 이름으로 가입한 경우 uk_member_name 유니크 제약 조건에 걸린다.
+            throw new IllegalStateException("이미 존재하는 회원입니다.", e);
+        }
+        addNameAfterCommit(member.getId(), member.getName());
         return member.getId();
     }
 
     /**
      * 회원 중복 조회
-     * @param member
+     * bloom filter 에 없는 이름이면 DB 를 읽지 않고, 있을 수도 있으면 exists 쿼리로 확인한다.
+     * @param name
      */
-    private void validateDuplicateMember(Member member) {
-        List<Member> findMembers = memberRepository.findByName(member.getName());
-        if (!findMembers.isEmpty()) {
+    private void validateDuplicateName(String name) {
+        if (memberNameFilter.mightContain(name)
+                && memberRepository.existsByName(name)) {
             throw new IllegalStateException("이미 존재하는 회원입니다.");
         }
         //동시 요청의 경우 걸러내지 못하기 때문에 DB 유니크 제약 조건을 설정해준다.
@@ -51,9 +70,38 @@ public class MemberService {
         return memberRepository.findById(id).get();
     }
 
+    /**
+     * 이름 변경. 가입과 같이 다른 회원이 쓰는 이름이면 IllegalStateException
+     */
     @Transactional
     public void update(Long id, String name) {
         Member member = memberRepository.findById(id).get();
+        if (name.equals(member.getName())) {
+            return;
+        }
+        validateDuplicateName(name);
         member.setName(name);
+        try {
+            memberRepository.flush();
+        } catch (DataIntegrityViolationException e) {
+            //동시에 같은 이름으로 가입하거나 바꾼 경우 uk_member_name 유니크 제약 조건에 걸린다.
+            throw new IllegalStateException("이미 존재하는 회원입니다.", e);
+        }
+        orderSummaryRepository.updateMemberName(id, name);
+        addNameAfterCommit(id, name);
+        eventPublisher.publishEvent(new MemberChangedEvent(id));
+    }
+
+    /**
+     * 커밋된 이름만 bloom filter, 이름 색인에 추가한다. 롤백된 가입, 이름 변경은 남지 않는다.
+     */
+    private void addNameAfterCommit(Long id, String name) {
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                memberNameFilter.add(name);
+                memberNameIndex.add(id, name);
+            }
+        });
     }
 }
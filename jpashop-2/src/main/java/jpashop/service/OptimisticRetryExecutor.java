@@ -0,0 +1,127 @@
+package jpashop.service;
+
+import jpashop.exception.ItemConflictException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.stereotype.Component;
+
+import javax.persistence.OptimisticLockException;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+import static java.util.stream.Collectors.toList;
+
+/**
+ * 상품 버전 충돌(@Version) 이 나면 트랜잭션을 처음부터 다시 실행한다.
+ * 트랜잭션 바깥에서 호출해야 하고, 재시도 사이에는 지수적으로 늘어나는 범위 안에서 무작위로 쉰다(full jitter).
+ * jpashop.item-retry.enabled 가 false 면 재시도 없이 충돌 횟수만 센다.
+ * 끝내 충돌하면 ItemConflictException(409) 으로 바꿔서 던진다.
+ */
+@Component
+public class OptimisticRetryExecutor {
+
+    private final boolean enabled;
+    private final int maxAttempts;
+    private final long backoffMillis;
+    private final long maxBackoffMillis;
+    private final Map<Long, Counters> counters = new ConcurrentHashMap<>();
+
+    public OptimisticRetryExecutor(@Value("${jpashop.item-retry.enabled:true}") boolean enabled,
+                                   @Value("${jpashop.item-retry.max-attempts:3}") int maxAttempts,
+                                   @Value("${jpashop.item-retry.backoff-millis:10}") long backoffMillis,
+                                   @Value("${jpashop.item-retry.max-backoff-millis:200}") long maxBackoffMillis) {
+        this.enabled = enabled;
+        this.maxAttempts = enabled ? Math.max(1, maxAttempts) : 1;
+        this.backoffMillis = backoffMillis;
+        this.maxBackoffMillis = maxBackoffMillis;
+    }
+
+    /**
+     * @param itemId 충돌을 셀 상품. null 이면 충돌한 엔티티 id 로 센다.
+     */
+    public <T> T execute(Long itemId, Supplier<T> action) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return action.get();
+            } catch (OptimisticLockingFailureException | OptimisticLockException e) {
+                Counters c = counters(itemId != null ? itemId : conflictedId(e));
+                c.conflicts.increment();
+                if (attempt >= maxAttempts) {
+                    c.giveUps.increment();
+                    throw new ItemConflictException("다른 요청이 먼저 상품을 바꿨습니다. 다시 시도해 주세요.", e);
+                }
+                c.retries.increment();
+                backoff(attempt, e);
+            }
+        }
+    }
+
+    public void run(Long itemId, Runnable action) {
+        execute(itemId, () -> {
+            action.run();
+            return null;
+        });
+    }
+
+    /**
+     * 여러 상품을 바꾸는 작업(주문 취소 등). 충돌은 실제로 충돌한 상품별로 센다.
+     */
+    public void run(Runnable action) {
+        run(null, action);
+    }
+
+    /**
+     * 충돌이 많은 상품 순
+     */
+    public List<ItemContention> stats() {
+        return counters.entrySet().stream()
+                .map(e -> new ItemContention(e.getKey(), e.getValue().conflicts.sum(),
+                        e.getValue().retries.sum(), e.getValue().giveUps.sum()))
+                .sorted(Comparator.comparingLong(ItemContention::getConflicts).reversed())
+                .collect(toList());
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    private Counters counters(Long itemId) {
+        //어느 상품인지 모르는 충돌은 0 번으로 모은다.
+        return counters.computeIfAbsent(itemId != null ? itemId : 0L, id -> new Counters());
+    }
+
+    private static Long conflictedId(RuntimeException e) {
+        if (e instanceof ObjectOptimisticLockingFailureException) {
+            Object identifier = ((ObjectOptimisticLockingFailureException) e).getIdentifier();
+            if (identifier instanceof Long) {
+                return (Long) identifier;
+            }
+        }
+        return null;
+    }
+
+    private void backoff(int attempt, RuntimeException cause) {
+        long ceiling = Math.min(maxBackoffMillis, backoffMillis << Math.min(attempt - 1, 20));
+        if (ceiling <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(ThreadLocalRandom.current().nextLong(ceiling + 1));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw cause;
+        }
+    }
+
+    private static class Counters {
+        final LongAdder conflicts = new LongAdder();
+        final LongAdder retries = new LongAdder();
+        final LongAdder giveUps = new LongAdder();
+    }
+}
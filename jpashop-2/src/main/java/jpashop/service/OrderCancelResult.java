@@ -0,0 +1,20 @@
+package jpashop.service;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * 일괄 취소 결과
+ */
+@Getter
+@AllArgsConstructor
+public class OrderCancelResult {
+
+    private int requested;
+    private int cancelled;
+
+    /**
+     * 배송 완료라서 취소하지 않은 주문 수. 나머지는 이미 취소되었거나 없는 주문이다.
+     */
+    private long refused;
+}
@@ -0,0 +1,88 @@
+package jpashop.service;
+
+import jpashop.domain.OrderStatus;
+import jpashop.domain.OrdersChangedEvent;
+import jpashop.repository.ItemRepository;
+import jpashop.repository.OrderOutboxRepository;
+import jpashop.repository.OrderRepository;
+import jpashop.repository.order.summary.OrderSummaryRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * 주문 일괄 취소(상품 리콜 등). Order.cancel() 처럼 주문마다 주문상품, 상품을 읽어서 dirty checking 하지 않고
+ * 청크마다 주문 상태 update, 상품별 합계로 재고를 되돌리는 update 한 번, outbox batch insert, 이벤트 한 번으로 처리한다.
+ * 배송 완료된 주문은 취소하지 않는다.
+ * bulk update 라서 영속성 컨텍스트에 이미 올라온 주문, 상품은 갱신되지 않는다.
+ */
+@Service
+@Transactional(readOnly = true)
+@RequiredArgsConstructor
+public class OrderCancelService {
+
+    //in 절 파라미터 수
+    private static final int CHUNK_SIZE = 1000;
+
+    private final OrderRepository orderRepository;
+    private final ItemRepository itemRepository;
+    private final OrderSummaryRepository orderSummaryRepository;
+    private final StockLedger stockLedger;
+    private final ApplicationEventPublisher eventPublisher;
+    private final OrderOutboxRepository orderOutboxRepository;
+
+    @Transactional
+    public OrderCancelResult cancelOrders(Collection<Long> orderIds) {
+        List<Long> ids = new ArrayList<>(orderIds);
+        int cancelled = 0;
+        long refused = 0;
+        for (int from = 0; from < ids.size(); from += CHUNK_SIZE) {
+            List<Long> chunk = ids.subList(from, Math.min(from + CHUNK_SIZE, ids.size()));
+            refused += orderRepository.countDelivered(chunk);
+            cancelled += cancelChunk(chunk);
+        }
+        return new OrderCancelResult(ids.size(), cancelled, refused);
+    }
+
+    /**
+     * 상품이 들어 있는 주문을 모두 취소한다.
+     */
+    @Transactional
+    public OrderCancelResult cancelOrdersByItem(Long itemId) {
+        return cancelOrders(orderRepository.findOrderedIdsByItem(itemId));
+    }
+
+    private int cancelChunk(List<Long> chunk) {
+        List<Long> cancellable = orderRepository.findCancellableIds(chunk);
+        if (cancellable.isEmpty()) {
+            return 0;
+        }
+        //update 는 조건을 다시 확인한다. 조회 후 다른 트랜잭션이 취소하거나 배송 완료했으면 재고를 되돌릴 주문이 달라지므로 롤백한다.
+        int updated = orderRepository.cancelAll(cancellable);
+        if (updated != cancellable.size()) {
+            throw new OptimisticLockingFailureException("취소하는 동안 주문 상태가 바뀌었습니다. 다시 시도하세요.");
+        }
+
+        //재고 장부 상품은 item 테이블을 건드리지 않고 장부에 돌려놓는다.
+        Set<Long> covered = stockLedger.coveredItems();
+        itemRepository.restoreStock(cancellable, covered);
+        if (!covered.isEmpty()) {
+            orderRepository.sumCountByItem(cancellable).forEach((itemId, count) -> {
+                if (covered.contains(itemId)) {
+                    stockLedger.released(itemId, count.intValue());
+                }
+            });
+        }
+        orderSummaryRepository.updateStatus(cancellable, OrderStatus.CANCEL);
+        orderOutboxRepository.saveAll(cancellable, OrderStatus.CANCEL);
+        eventPublisher.publishEvent(new OrdersChangedEvent(new ArrayList<>(cancellable), OrderStatus.CANCEL));
+        return updated;
+    }
+}
@@ -0,0 +1,19 @@
+package jpashop.service;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * 주문 가져오기 파일의 한 줄. 한 줄이 상품 하나짜리 주문 하나가 된다.
+ */
+@Getter @Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class OrderImportLine {
+
+    private Long memberId;
+    private Long itemId;
+    private int count;
+}
@@ -0,0 +1,23 @@
+package jpashop.service;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * 주문 가져오기 진행 상황. 청크 하나가 커밋될 때마다, 실패했을 때 한 번 만든다.
+ */
+@Getter
+@AllArgsConstructor
+public class OrderImportProgress {
+
+    private int chunk;
+    private int chunkOrders;
+    private long chunkMillis;
+    private long totalOrders;
+    private long elapsedMillis;
+
+    /**
+     * 실패한 청크의 오류. 실패한 청크는 롤백되고 가져오기는 멈춘다.
+     */
+    private String error;
+}
@@ -0,0 +1,147 @@
+package jpashop.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * 대량 주문 파일 가져오기. CSV(memberId,itemId,count) 나 NDJSON 을 한 줄씩 읽어서
+ * chunkSize 줄마다 OrderService.placeOrders 로 트랜잭션 한 번에 저장한다.
+ * 메모리에는 청크 하나 분량만 들고 있기 때문에 파일 크기와 상관없이 사용량이 일정하다.
+ */
+@Slf4j
+@Component
+public class OrderImporter {
+
+    private static final String CSV_HEADER = "memberId,itemId,count";
+    private static final char BOM = '\uFEFF';
+
+    private final OrderService orderService;
+    private final ObjectReader lineReader;
+    private final int chunkSize;
+
+    public OrderImporter(OrderService orderService,
+                         ObjectMapper objectMapper,
+                         @Value("${jpashop.import.chunk-size:1000}") int chunkSize) {
+        this.orderService = orderService;
+        this.lineReader = objectMapper.readerFor(OrderImportLine.class);
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * 첫 줄이 memberId,itemId,count 면 헤더로 보고 건너뛴다.
+     * @return 저장한 주문 수
+     */
+    public long importCsv(Reader reader, Consumer<OrderImportProgress> progress) throws IOException {
+        return importLines(reader, progress, (line, lineNumber) -> {
+            if (lineNumber == 1 && CSV_HEADER.equalsIgnoreCase(line.replace(" ", ""))) {
+                return null;
+            }
+            String[] columns = StringUtils.commaDelimitedListToStringArray(line);
+            if (columns.length != 3) {
+                throw new IllegalArgumentException(lineNumber + "번째 줄: memberId,itemId,count 형식이 아닙니다.");
+            }
+            return new OrderImportLine(Long.valueOf(columns[0].trim()), Long.valueOf(columns[1].trim()),
+                    Integer.parseInt(columns[2].trim()));
+        });
+    }
+
+    /**
+     * 한 줄에 {"memberId":1,"itemId":2,"count":3} 하나.
+     * @return 저장한 주문 수
+     */
+    public long importNdjson(Reader reader, Consumer<OrderImportProgress> progress) throws IOException {
+        return importLines(reader, progress, (line, lineNumber) -> lineReader.readValue(line));
+    }
+
+    private long importLines(Reader reader, Consumer<OrderImportProgress> progress, LineParser parser) throws IOException {
+        BufferedReader lines = reader instanceof BufferedReader ? (BufferedReader) reader : new BufferedReader(reader);
+        long start = System.nanoTime();
+        List<OrderImportLine> chunk = new ArrayList<>(chunkSize);
+        int chunkNumber = 0;
+        long totalOrders = 0;
+        long lineNumber = 0;
+
+        String line;
+        while ((line = lines.readLine()) != null) {
+            lineNumber++;
+            if (lineNumber == 1 && !line.isEmpty() && line.charAt(0) == BOM) {
+                line = line.substring(1);
+            }
+            line = line.trim();
+            if (line.isEmpty()) {
+                continue;
+            }
+            OrderImportLine parsed;
+            try {
+                parsed = parser.parse(line, lineNumber);
+                if (parsed != null && parsed.getCount() <= 0) {
+                    //음수 수량은 재고를 늘린다.
+                    throw new IllegalArgumentException("수량은 1개 이상이어야 합니다. count=" + parsed.getCount());
+                }
+            } catch (IOException | RuntimeException e) {
+                progress.accept(new OrderImportProgress(chunkNumber + 1, 0, 0, totalOrders,
+                        millisSince(start), lineNumber + "번째 줄을 읽을 수 없습니다. " + e.getMessage()));
+                return totalOrders;
+            }
+            if (parsed == null) {
+                continue;
+            }
+            chunk.add(parsed);
+            if (chunk.size() == chunkSize) {
+                OrderImportProgress saved = saveChunk(++chunkNumber, chunk, totalOrders, start);
+                progress.accept(saved);
+                if (saved.getError() != null) {
+                    return totalOrders;
+                }
+                totalOrders = saved.getTotalOrders();
+                chunk.clear();
+            }
+        }
+        if (!chunk.isEmpty()) {
+            OrderImportProgress saved = saveChunk(++chunkNumber, chunk, totalOrders, start);
+            progress.accept(saved);
+            totalOrders = saved.getTotalOrders();
+        }
+        return totalOrders;
+    }
+
+    private OrderImportProgress saveChunk(int chunkNumber, List<OrderImportLine> chunk, long totalOrders, long start) {
+        long chunkStart = System.nanoTime();
+        try {
+            orderService.placeOrders(chunk);
+        } catch (RuntimeException e) {
+            //실패한 청크는 롤백된다. 이전 청크까지는 이미 커밋되어 있다.
+            log.warn("order import failed chunk={} totalOrders={}", chunkNumber, totalOrders, e);
+            return new OrderImportProgress(chunkNumber, 0, millisSince(chunkStart), totalOrders,
+                    millisSince(start), e.getMessage());
+        }
+        OrderImportProgress saved = new OrderImportProgress(chunkNumber, chunk.size(), millisSince(chunkStart),
+                totalOrders + chunk.size(), millisSince(start), null);
+        log.info("order import chunk={} orders={} chunkMillis={} totalOrders={}",
+                chunkNumber, saved.getChunkOrders(), saved.getChunkMillis(), saved.getTotalOrders());
+        return saved;
+    }
+
+    private static long millisSince(long nanos) {
+        return (System.nanoTime() - nanos) / 1_000_000;
+    }
+
+    private interface LineParser {
+
+        /**
+         * @return 건너뛸 줄이면 null
+         */
+        OrderImportLine parse(String line, long lineNumber) throws IOException;
+    }
+}
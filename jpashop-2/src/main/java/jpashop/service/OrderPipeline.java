@@ -0,0 +1,171 @@
+package jpashop.service;
+
+import jpashop.exception.OrderQueueFullException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.TreeMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 비동기 주문. 요청 스레드는 주문을 고정 크기 대기열에 넣고 ticketId 만 받아서 바로 돌아간다.
+ * writer 스레드 몇 개가 대기열에서 최대 batchSize 건씩 꺼내서 트랜잭션 한 번에 커밋한다(group commit).
+ * 커넥션은 요청 수가 아니라 writer 수만큼만 쓰고, 커밋도 묶음마다 한 번만 한다.
+ *
+ * 묶음 중 한 건이라도 실패하면 묶음 전체가 롤백되므로 그 묶음은 한 건씩 다시 커밋해서 실패한 주문만 FAILED 로 남긴다.
+ * 대기열은 메모리에만 있어서 서버가 죽으면 아직 커밋되지 않은 주문은 사라진다.
+ */
+@Slf4j
+@Component
+public class OrderPipeline {
+
+    private final OrderService orderService;
+    private final boolean enabled;
+    private final int batchSize;
+    private final long ticketTtlNanos;
+    private final BlockingQueue<OrderTicket> queue;
+    private final Map<Long, OrderTicket> tickets = new ConcurrentHashMap<>();
+    private final Queue<OrderTicket> completed = new ConcurrentLinkedQueue<>();
+    private final AtomicLong ticketSequence = new AtomicLong();
+    private final ExecutorService writers;
+    private volatile boolean running = true;
+
+    public OrderPipeline(OrderService orderService,
+                         @Value("${jpashop.order-pipeline.enabled:false}") boolean enabled,
+                         @Value("${jpashop.order-pipeline.capacity:10000}") int capacity,
+                         @Value("${jpashop.order-pipeline.writers:2}") int writers,
+                         @Value("${jpashop.order-pipeline.batch-size:100}") int batchSize,
+                         @Value("${jpashop.order-pipeline.ticket-ttl-millis:600000}") long ticketTtlMillis) {
+        this.orderService = orderService;
+        this.enabled = enabled;
+        this.batchSize = batchSize;
+        this.ticketTtlNanos = TimeUnit.MILLISECONDS.toNanos(ticketTtlMillis);
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        if (!enabled) {
+            this.writers = null;
+            return;
+        }
+
+        AtomicInteger sequence = new AtomicInteger();
+        this.writers = Executors.newFixedThreadPool(writers, r -> {
+            Thread thread = new Thread(r, "order-writer-" + sequence.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        for (int i = 0; i < writers; i++) {
+            this.writers.execute(this::drain);
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * 주문 접수. 대기열이 가득 차면 기다리지 않고 OrderQueueFullException 을 던진다.
+     * @param itemCounts 상품 id 별 주문 수량
+     */
+    public OrderTicket submit(Long memberId, Map<Long, Integer> itemCounts) {
+        if (!enabled) {
+            throw new IllegalStateException("비동기 주문을 사용하지 않습니다. jpashop.order-pipeline.enabled 를 확인하세요.");
+        }
+        OrderTicket ticket = new OrderTicket(ticketSequence.incrementAndGet(), memberId, new TreeMap<>(itemCounts));
+        tickets.put(ticket.getTicketId(), ticket);
+        if (!queue.offer(ticket)) {
+            tickets.remove(ticket.getTicketId());
+            throw new OrderQueueFullException("주문 대기열이 가득 찼습니다.");
+        }
+        return ticket;
+    }
+
+    /**
+     * @return 없거나 완료 후 ticket-ttl-millis 가 지난 주문이면 null
+     */
+    public OrderTicket findTicket(Long ticketId) {
+        return tickets.get(ticketId);
+    }
+
+    public int getQueueSize() {
+        return queue.size();
+    }
+
+    private void drain() {
+        List<OrderTicket> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                OrderTicket first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first != null) {
+                    batch.add(first);
+                    queue.drainTo(batch, batchSize - 1);
+                    place(batch);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                log.error("order pipeline writer failed batch={}", batch.size(), e);
+                batch.stream().filter(t -> !t.isDone()).forEach(t -> t.failed(e));
+            } finally {
+                completed.addAll(batch);
+                batch.clear();
+            }
+            purgeExpired();
+        }
+    }
+
+    private void place(List<OrderTicket> batch) {
+        List<Long> orderIds;
+        try {
+            orderIds = orderService.orderAll(batch);
+        } catch (RuntimeException e) {
+            log.debug("order pipeline batch rolled back, retrying one by one batch={}", batch.size(), e);
+            for (OrderTicket ticket : batch) {
+                try {
+                    ticket.placed(orderService.order(ticket.getMemberId(), ticket.getItemCounts()));
+                } catch (RuntimeException orderFailure) {
+                    ticket.failed(orderFailure);
+                }
+            }
+            return;
+        }
+        for (int i = 0; i < batch.size(); i++) {
+            batch.get(i).placed(orderIds.get(i));
+        }
+    }
+
+    private void purgeExpired() {
+        long now = System.nanoTime();
+        OrderTicket oldest;
+        while ((oldest = completed.peek()) != null && now - oldest.getCompletedNanos() > ticketTtlNanos) {
+            if (completed.remove(oldest)) {
+                tickets.remove(oldest.getTicketId());
+            }
+        }
+    }
+
+    /**
+     * 이미 접수한 주문은 모두 커밋하고 멈춘다.
+     */
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        running = false;
+        if (writers != null) {
+            writers.shutdown();
+            writers.awaitTermination(30, TimeUnit.SECONDS);
+        }
+    }
+}
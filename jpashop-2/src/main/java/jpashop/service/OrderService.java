@@ -3,17 +3,29 @@ package jpashop.service;
 import jpashop.domain.Delivery;
 import jpashop.domain.Member;
 import jpashop.domain.Order;
+import jpashop.domain.OrderChangedEvent;
 import jpashop.domain.OrderItem;
+import jpashop.domain.OrderStatus;
 import jpashop.domain.item.Item;
 import jpashop.repository.ItemRepository;
 import jpashop.repository.MemberRepository;
+import jpashop.repository.OrderOutboxRepository;
 import jpashop.repository.OrderRepository;
 import jpashop.repository.OrderSearch;
+import jpashop.repository.order.summary.OrderSummaryRepository;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
 
 @Service
 @Transactional(readOnly = true)
@@ -23,38 +35,195 @@ public class OrderService {
     private final OrderRepository orderRepository;
     private final MemberRepository memberRepository;
     private final ItemRepository itemRepository;
+    private final OrderSummaryRepository orderSummaryRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final StockLedger stockLedger;
+    private final OrderOutboxRepository orderOutboxRepository;
 
     /**
      * 주문
      */
     @Transactional
     public Long order(Long memberId, Long itemId, int count) {
+        checkCount(itemId, count);
         Member member = memberRepository.findById(memberId).get();
-        Item item = itemRepository.findOne(itemId);
+        Item item;
+        if (stockLedger.covers(itemId)) {
+            stockLedger.reserve(itemId, count);
+            item = itemRepository.findOne(itemId);
+        } else {
+            item = itemRepository.reserveStock(itemId, count);
+        }
 
         Delivery delivery = new Delivery();
         delivery.setAddress(member.getAddress());
 
-        OrderItem orderItem = OrderItem.createOrderItem(item, item.getPrice(), count);
+        OrderItem orderItem = OrderItem.createReservedOrderItem(item, item.getPrice(), count);
         Order order = Order.createOrder(member, delivery, orderItem);
 
         orderRepository.save(order);
+        orderSummaryRepository.save(order);
+        orderOutboxRepository.save(order.getId(), order.getStatus());
+        eventPublisher.publishEvent(new OrderChangedEvent(order.getId(), order.getStatus(), true));
         return order.getId();
     }
 
+    /**
+     * 여러 상품 주문. 회원, 상품 조회와 주문 저장을 트랜잭션 한 번에 처리한다.
+     * 상품은 in 쿼리 한 번으로 id 순서대로 락을 잡고(재고 장부 상품은 락 없이 장부에서 예약),
+     * 주문상품 insert 는 hibernate.jdbc.batch_size 로 묶여서 한 번에 나간다.
+     * @param itemCounts 상품 id 별 주문 수량
+     */
+    @Transactional
+    public Long order(Long memberId, Map<Long, Integer> itemCounts) {
+        itemCounts.forEach(this::checkCount);
+        Member member = memberRepository.findById(memberId).get();
+
+        TreeMap<Long, Integer> counts = new TreeMap<>(itemCounts);
+        List<Long> lockIds = new ArrayList<>();
+        List<Long> ledgerIds = new ArrayList<>();
+        counts.keySet().forEach(id -> (stockLedger.covers(id) ? ledgerIds : lockIds).add(id));
+
+        Map<Long, Item> items = new HashMap<>();
+        itemRepository.findAllForUpdate(lockIds).forEach(item -> items.put(item.getId(), item));
+        itemRepository.findAllByIds(ledgerIds).forEach(item -> items.put(item.getId(), item));
+
+        List<OrderItem> orderItems = new ArrayList<>();
+        counts.forEach((itemId, count) -> {
+            Item item = items.get(itemId);
+            if (item == null) {
+                throw new IllegalArgumentException("존재하지 않는 상품입니다. id=" + itemId);
+            }
+            if (stockLedger.covers(itemId)) {
+                stockLedger.reserve(itemId, count);
+                orderItems.add(OrderItem.createReservedOrderItem(item, item.getPrice(), count));
+            } else {
+                orderItems.add(OrderItem.createOrderItem(item, item.getPrice(), count));
+            }
+        });
+
+        Delivery delivery = new Delivery();
+        delivery.setAddress(member.getAddress());
+        Order order = Order.createOrder(member, delivery, orderItems.toArray(new OrderItem[0]));
+
+        orderRepository.save(order);
+        orderSummaryRepository.save(order);
+        orderOutboxRepository.save(order.getId(), order.getStatus());
+        eventPublisher.publishEvent(new OrderChangedEvent(order.getId(), order.getStatus(), true));
+        return order.getId();
+    }
+
+    /**
+     * 비동기 주문 묶음을 트랜잭션 한 번에 만든다(group commit).
+     * 묶음 전체의 상품을 id 순서로 먼저 잠가서 writer 끼리 락을 엇갈려 잡지 않게 하고,
+     * flush 는 커밋 때 한 번만 해서 insert 가 주문마다 끊기지 않고 batch 로 묶이게 한다.
+     * 한 건이라도 실패하면 묶음 전체가 롤백된다.
+     * @return tickets 순서대로 주문 id
+     */
+    @Transactional
+    public List<Long> orderAll(List<OrderTicket> tickets) {
+        orderRepository.flushOnCommit();
+        Set<Long> lockIds = new TreeSet<>();
+        for (OrderTicket ticket : tickets) {
+            ticket.getItemCounts().keySet().stream()
+                    .filter(itemId -> !stockLedger.covers(itemId))
+                    .forEach(lockIds::add);
+        }
+        itemRepository.findAllForUpdate(lockIds);
+
+        List<Long> orderIds = new ArrayList<>(tickets.size());
+        for (OrderTicket ticket : tickets) {
+            orderIds.add(order(ticket.getMemberId(), ticket.getItemCounts()));
+        }
+        return orderIds;
+    }
+
+    /**
+     * 주문 여러 건을 트랜잭션 한 번에 저장한다. 회원과 상품은 청크 전체에서 한 번씩만 읽고,
+     * 저장이 끝나면 flush 후 영속성 컨텍스트를 비워서 바깥 트랜잭션에 참여해도 청크마다 쌓이지 않게 한다.
+     * @return 저장한 주문 수
+     */
+    @Transactional
+    public int placeOrders(List<OrderImportLine> lines) {
+        Set<Long> memberIds = new HashSet<>();
+        Set<Long> lockIds = new TreeSet<>();
+        Set<Long> ledgerIds = new HashSet<>();
+        for (OrderImportLine line : lines) {
+            checkCount(line.getItemId(), line.getCount());
+            memberIds.add(line.getMemberId());
+            (stockLedger.covers(line.getItemId()) ? ledgerIds : lockIds).add(line.getItemId());
+        }
+
+        Map<Long, Member> members = new HashMap<>();
+        memberRepository.findAllById(memberIds).forEach(member -> members.put(member.getId(), member));
+        Map<Long, Item> items = new HashMap<>();
+        itemRepository.findAllForUpdate(lockIds).forEach(item -> items.put(item.getId(), item));
+        itemRepository.findAllByIds(ledgerIds).forEach(item -> items.put(item.getId(), item));
+
+        Order order = null;
+        for (OrderImportLine line : lines) {
+            Member member = members.get(line.getMemberId());
+            if (member == null) {
+                throw new IllegalArgumentException("존재하지 않는 회원입니다. id=" + line.getMemberId());
+            }
+            Item item = items.get(line.getItemId());
+            if (item == null) {
+                throw new IllegalArgumentException("존재하지 않는 상품입니다. id=" + line.getItemId());
+            }
+
+            OrderItem orderItem;
+            if (ledgerIds.contains(item.getId())) {
+                stockLedger.reserve(item.getId(), line.getCount());
+                orderItem = OrderItem.createReservedOrderItem(item, item.getPrice(), line.getCount());
+            } else {
+                orderItem = OrderItem.createOrderItem(item, item.getPrice(), line.getCount());
+            }
+            Delivery delivery = new Delivery();
+            delivery.setAddress(member.getAddress());
+            order = Order.createOrder(member, delivery, orderItem);
+
+            orderRepository.save(order);
+            orderSummaryRepository.save(order);
+            orderOutboxRepository.save(order.getId(), order.getStatus());
+        }
+        orderRepository.flushAndClear();
+
+        //새 주문 이벤트는 목록 전체를 무효화하므로 청크마다 한 번이면 된다.
+        if (order != null) {
+            eventPublisher.publishEvent(new OrderChangedEvent(order.getId(), OrderStatus.ORDER, true));
+        }
+        return lines.size();
+    }
+
     /**
      * 주문 취소
      */
     @Transactional
     public void cancalOrder(Long orderId) {
         Order order = orderRepository.findOne(orderId);
-        order.cancel();
+        //재고 장부 상품은 상품 엔티티를 건드리지 않고 장부와 stock_journal 에만 돌려놓는다. item 테이블은 flush 만 바꾼다.
+        order.cancel(itemId -> !stockLedger.covers(itemId));
+        order.getOrderItems().stream()
+                .filter(orderItem -> stockLedger.covers(orderItem.getItem().getId()))
+                .forEach(orderItem -> stockLedger.released(orderItem.getItem().getId(), orderItem.getCount()));
+        orderSummaryRepository.updateStatus(orderId, order.getStatus());
+        orderOutboxRepository.save(orderId, order.getStatus());
+        eventPublisher.publishEvent(new OrderChangedEvent(orderId, order.getStatus(), false));
+    }
+
+    /**
+     * 수량이 0 이하면 빈 주문상품이 생기거나 재고가 오히려 늘어난다.
+     */
+    private void checkCount(Long itemId, Integer count) {
+        if (count == null || count <= 0) {
+            throw new IllegalArgumentException("주문 수량은 1개 이상이어야 합니다. itemId=" + itemId + ", count=" + count);
+        }
     }
 
     /**
      * 주문 검색
      */
     public List<Order> findOrders(OrderSearch orderSearch) {
-        return orderRepository.findAllByCriteria(orderSearch);
+        return orderRepository.findAllBySearch(orderSearch);
     }
 }
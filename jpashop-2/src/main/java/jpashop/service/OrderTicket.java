@@ -0,0 +1,51 @@
+package jpashop.service;
+
+import lombok.Getter;
+
+import java.util.SortedMap;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * 비동기 주문 한 건. 접수하면 바로 ticketId 를 돌려주고, writer 스레드가 커밋한 뒤 결과를 채운다.
+ */
+@Getter
+public class OrderTicket {
+
+    private final Long ticketId;
+    private final Long memberId;
+    private final SortedMap<Long, Integer> itemCounts;
+    private final long submittedNanos = System.nanoTime();
+    private volatile OrderTicketStatus status = OrderTicketStatus.PENDING;
+    private volatile Long orderId;
+    private volatile String error;
+    private volatile long completedNanos;
+
+    /**
+     * 완료되면 주문 id, 실패하면 예외로 끝난다.
+     */
+    private final CompletableFuture<Long> result = new CompletableFuture<>();
+
+    OrderTicket(Long ticketId, Long memberId, SortedMap<Long, Integer> itemCounts) {
+        this.ticketId = ticketId;
+        this.memberId = memberId;
+        this.itemCounts = itemCounts;
+    }
+
+    void placed(Long orderId) {
+        this.orderId = orderId;
+        this.completedNanos = System.nanoTime();
+        this.status = OrderTicketStatus.PLACED;
+        result.complete(orderId);
+    }
+
+    void failed(RuntimeException e) {
+        this.error = e.getMessage() == null ? e.getClass().getSimpleName() : e.getMessage();
+        this.completedNanos = System.nanoTime();
+        this.status = OrderTicketStatus.FAILED;
+        result.completeExceptionally(e);
+    }
+
+    boolean isDone() {
+        return status != OrderTicketStatus.PENDING;
+    }
+}
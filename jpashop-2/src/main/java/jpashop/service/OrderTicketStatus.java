@@ -0,0 +1,5 @@
+package jpashop.service;
+
+public enum OrderTicketStatus {
+    PENDING, PLACED, FAILED
+}
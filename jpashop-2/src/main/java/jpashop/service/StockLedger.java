@@ -0,0 +1,277 @@
+package jpashop.service;
+
+import jpashop.domain.StockJournal;
+import jpashop.exception.NotEnoughStockException;
+import jpashop.repository.ItemRepository;
+import jpashop.repository.StockJournalRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.StringUtils;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.IntConsumer;
+
+/**
+ * 주문이 몰리는 상품의 재고 장부.
+ * 남은 재고는 메모리(StripedStock) 에서 락 없이 예약하고, 변경분은 주문 트랜잭션에서 stock_journal 에 insert 만 한다.
+ * 모아둔 변경분은 주기적으로 상품별 합계 한 번의 update 로 item 테이블에 반영한다.
+ *
+ * 메모리 값은 처음 쓸 때 item.stock_quantity + 반영 전 stock_journal 합계로 만들기 때문에
+ * 서버가 죽어도 커밋된 주문의 재고는 다시 계산된다. 서버 한 대에서만 재고를 예약한다고 가정한다.
+ *
+ * 예약한 트랜잭션은 끝날 때까지 상품별 읽기 락을 쥔다. 관리자가 재고를 덮어쓰면 쓰기 락으로 그 트랜잭션들이
+ * 끝나기를 기다린 뒤 장부를 다시 만들기 때문에, 진행 중이던 예약의 커밋/롤백이 새 값과 어긋나지 않는다.
+ */
+@Slf4j
+@Component
+public class StockLedger {
+
+    private static final int FLUSH_CHUNK = 1000;
+
+    private final ItemRepository itemRepository;
+    private final StockJournalRepository stockJournalRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final TransactionTemplate loadTemplate;
+    private final int stripes;
+    private final long lockWaitMillis;
+    private final Set<Long> coveredItems = ConcurrentHashMap.newKeySet();
+    private final Map<Long, StripedStock> stocks = new ConcurrentHashMap<>();
+    private final Map<Long, ReentrantReadWriteLock> locks = new ConcurrentHashMap<>();
+
+    public StockLedger(ItemRepository itemRepository,
+                       StockJournalRepository stockJournalRepository,
+                       PlatformTransactionManager transactionManager,
+                       @Value("${jpashop.stock-ledger.items:}") String items,
+                       @Value("${jpashop.stock-ledger.stripes:8}") int stripes,
+                       @Value("${jpashop.stock-ledger.lock-wait-millis:5000}") long lockWaitMillis) {
+        this.itemRepository = itemRepository;
+        this.stockJournalRepository = stockJournalRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        //호출한 트랜잭션의 커밋 전 변경이 장부에 섞이지 않도록 항상 새 트랜잭션에서 읽는다.
+        this.loadTemplate = new TransactionTemplate(transactionManager);
+        this.loadTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.loadTemplate.setReadOnly(true);
+        this.stripes = stripes;
+        this.lockWaitMillis = lockWaitMillis;
+        for (String itemId : StringUtils.commaDelimitedListToStringArray(items)) {
+            if (StringUtils.hasText(itemId)) {
+                coveredItems.add(Long.valueOf(itemId.trim()));
+            }
+        }
+    }
+
+    public boolean covers(Long itemId) {
+        return coveredItems.contains(itemId);
+    }
+
+    /**
+     * 지금 장부로 관리하는 상품 id 복사본
+     */
+    public Set<Long> coveredItems() {
+        return new HashSet<>(coveredItems);
+    }
+
+    /**
+     * 운영 중에 장부로 관리할 상품 추가
+     */
+    public void cover(Long itemId) {
+        coveredItems.add(itemId);
+    }
+
+    /**
+     * 주문 트랜잭션 안에서 호출. 롤백되면 예약한 재고를 돌려놓는다.
+     */
+    public void reserve(Long itemId, int count) {
+        Lock lock = lockUntilCompletion(itemId);
+        StripedStock stock;
+        try {
+            stock = stock(itemId);
+            if (!stock.tryReserve(count)) {
+                throw new NotEnoughStockException("수량 부족");
+            }
+        } catch (RuntimeException e) {
+            lock.unlock();
+            throw e;
+        }
+        register(lock, status -> {
+            if (status != TransactionSynchronization.STATUS_COMMITTED) {
+                stock.release(count);
+            }
+        });
+        stockJournalRepository.save(new StockJournal(itemId, -count));
+    }
+
+    /**
+     * 주문 취소 트랜잭션 안에서 호출. item 테이블은 바꾸지 않고 변경분만 stock_journal 에 남기고, 커밋되면 장부에도 더한다.
+     */
+    public void released(Long itemId, int count) {
+        Lock lock = lockUntilCompletion(itemId);
+        StripedStock stock;
+        try {
+            stock = stock(itemId);
+        } catch (RuntimeException e) {
+            lock.unlock();
+            throw e;
+        }
+        register(lock, status -> {
+            if (status == TransactionSynchronization.STATUS_COMMITTED) {
+                stock.release(count);
+            }
+        });
+        stockJournalRepository.save(new StockJournal(itemId, count));
+    }
+
+    /**
+     * 상품 수정으로 재고를 직접 덮어쓴 경우. 같은 트랜잭션에서 반영 전 변경분을 지워 flush 가 새 값에 더하지 않게 하고,
+     * 커밋 후 진행 중인 예약이 끝나기를 기다렸다가 DB 기준으로 장부를 다시 만든다.
+     */
+    public void overwritten(Long itemId) {
+        stockJournalRepository.deleteByItem(itemId);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status == STATUS_COMMITTED) {
+                    rebuild(itemId);
+                }
+            }
+        });
+    }
+
+    public long available(Long itemId) {
+        return stock(itemId).available();
+    }
+
+    /**
+     * 반영 전 변경분을 상품별로 합쳐서 item 테이블에 더하고 지운다.
+     * 아직 커밋되지 않은 변경분은 보이지 않으므로 다음 번에 반영된다.
+     * @return 반영한 변경분 수
+     */
+    @Scheduled(fixedDelayString = "${jpashop.stock-ledger.flush-millis:1000}")
+    public int flush() {
+        int flushed = 0;
+        while (true) {
+            Integer count = transactionTemplate.execute(status -> {
+                List<StockJournal> journals = stockJournalRepository.findOldest(FLUSH_CHUNK);
+                if (journals.isEmpty()) {
+                    return 0;
+                }
+                Map<Long, Long> deltas = new HashMap<>();
+                Map<Long, List<Long>> idsByItem = new TreeMap<>();
+                for (StockJournal journal : journals) {
+                    deltas.merge(journal.getItemId(), (long) journal.getDelta(), Long::sum);
+                    idsByItem.computeIfAbsent(journal.getItemId(), id -> new ArrayList<>()).add(journal.getId());
+                }
+                //그 사이 재고를 덮어쓰면서 변경분을 지웠으면 그 상품은 더하지 않는다.
+                idsByItem.forEach((itemId, ids) -> {
+                    if (stockJournalRepository.deleteByItemAndIds(itemId, ids) == ids.size()) {
+                        itemRepository.addStock(itemId, deltas.get(itemId));
+                    }
+                });
+                return journals.size();
+            });
+            flushed += count;
+            if (count < FLUSH_CHUNK) {
+                return flushed;
+            }
+        }
+    }
+
+    private StripedStock stock(Long itemId) {
+        StripedStock stock = stocks.get(itemId);
+        if (stock != null) {
+            return stock;
+        }
+        StripedStock loaded = new StripedStock(stripes, load(itemId));
+        stock = stocks.putIfAbsent(itemId, loaded);
+        return stock == null ? loaded : stock;
+    }
+
+    private long load(Long itemId) {
+        return loadTemplate.execute(status ->
+                itemRepository.findOne(itemId).getStockQuantity() + stockJournalRepository.sumDelta(itemId));
+    }
+
+    /**
+     * 재고를 덮어쓴 트랜잭션이 커밋된 뒤. 예약 중인 트랜잭션이 모두 끝난 뒤에 같은 StripedStock 값을 바꾼다.
+     * 기다리다 시간이 지나면 장부를 버리고 다음에 DB 에서 다시 읽게 한다.
+     */
+    private void rebuild(Long itemId) {
+        Lock lock = lock(itemId).writeLock();
+        if (!tryLock(lock)) {
+            log.warn("stock ledger rebuild timed out itemId={}", itemId);
+            stocks.remove(itemId);
+            return;
+        }
+        try {
+            StripedStock stock = stocks.get(itemId);
+            if (stock != null) {
+                stock.reset(load(itemId));
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 트랜잭션이 끝날 때까지 쥐는 읽기 락. 재고를 덮어쓰는 쪽이 기다리고 있으면 오래 기다리지 않고 실패한다.
+     */
+    private Lock lockUntilCompletion(Long itemId) {
+        Lock lock = lock(itemId).readLock();
+        if (!tryLock(lock)) {
+            throw new IllegalStateException("재고를 다시 계산하는 중입니다. 잠시 후 다시 주문해 주세요.");
+        }
+        return lock;
+    }
+
+    private boolean tryLock(Lock lock) {
+        try {
+            return lock.tryLock(lockWaitMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private ReentrantReadWriteLock lock(Long itemId) {
+        return locks.computeIfAbsent(itemId, id -> new ReentrantReadWriteLock());
+    }
+
+    /**
+     * 트랜잭션이 끝나면 onCompletion 을 실행하고 락을 푼다.
+     */
+    private void register(Lock lock, IntConsumer onCompletion) {
+        try {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    try {
+                        onCompletion.accept(status);
+                    } finally {
+                        lock.unlock();
+                    }
+                }
+            });
+        } catch (RuntimeException e) {
+            onCompletion.accept(TransactionSynchronization.STATUS_ROLLED_BACK);
+            lock.unlock();
+            throw e;
+        }
+    }
+}
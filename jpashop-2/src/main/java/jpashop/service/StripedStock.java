@@ -0,0 +1,85 @@
+package jpashop.service;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 상품 하나의 남은 재고를 여러 칸에 나눠 담는다.
+ * 스레드마다 다른 칸에서 CAS 로 빼기 때문에 같은 값 하나를 두고 경쟁하지 않는다.
+ * 한 칸이 모자라면 다른 칸을 차례로 보고, 그래도 안 되면 전체를 한 칸으로 모아 다시 시도한다.
+ */
+class StripedStock {
+
+    //칸 사이를 캐시 라인(64 byte) 만큼 띄운다.
+    private static final int PAD = 8;
+
+    private final int stripes;
+    private final AtomicLongArray cells;
+
+    StripedStock(int stripes, long stock) {
+        this.stripes = stripes;
+        this.cells = new AtomicLongArray(stripes * PAD);
+        fill(stock);
+    }
+
+    boolean tryReserve(long count) {
+        int start = ThreadLocalRandom.current().nextInt(stripes);
+        for (int i = 0; i < stripes; i++) {
+            if (tryTake((start + i) % stripes, count)) {
+                return true;
+            }
+        }
+        return rebalanceAndTake(count);
+    }
+
+    void release(long count) {
+        cells.addAndGet(ThreadLocalRandom.current().nextInt(stripes) * PAD, count);
+    }
+
+    long available() {
+        long sum = 0;
+        for (int i = 0; i < stripes; i++) {
+            sum += cells.get(i * PAD);
+        }
+        return sum;
+    }
+
+    /**
+     * 재고를 새 값으로 바꾼다. 예약이 동시에 일어나지 않을 때만 호출한다.
+     */
+    synchronized void reset(long stock) {
+        fill(stock);
+    }
+
+    private void fill(long stock) {
+        for (int i = 0; i < stripes; i++) {
+            cells.set(i * PAD, stock / stripes + (i < stock % stripes ? 1 : 0));
+        }
+    }
+
+    private boolean tryTake(int stripe, long count) {
+        int index = stripe * PAD;
+        while (true) {
+            long current = cells.get(index);
+            if (current < count) {
+                return false;
+            }
+            if (cells.compareAndSet(index, current, current - count)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * 칸마다 조금씩 남아 합치면 충분한 경우. 모든 칸을 비워 모은 뒤 빼고 나머지는 첫 칸에 돌려둔다.
+     */
+    private synchronized boolean rebalanceAndTake(long count) {
+        long total = 0;
+        for (int i = 0; i < stripes; i++) {
+            total += cells.getAndSet(i * PAD, 0);
+        }
+        boolean taken = total >= count;
+        cells.addAndGet(0, taken ? total - count : total);
+        return taken;
+    }
+}
@@ -0,0 +1,63 @@
+package jpashop.sql;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+/**
+ * 요청 하나에서 실행된 SQL 수, JDBC 시간, 같은 SQL 반복 횟수가 예산을 넘으면 경고 로그를 남긴다.
+ * /api/v1/orders 처럼 지연 로딩으로 같은 select 를 주문 수만큼 반복하는 N+1 을 찾는 용도.
+ */
+@Slf4j
+@Component
+public class SqlBudgetFilter extends OncePerRequestFilter {
+
+    private final boolean enabled;
+    private final int maxStatements;
+    private final int maxRepeats;
+    private final long maxMillis;
+
+    public SqlBudgetFilter(@Value("${jpashop.sql-budget.enabled:true}") boolean enabled,
+                           @Value("${jpashop.sql-budget.max-statements:50}") int maxStatements,
+                           @Value("${jpashop.sql-budget.max-repeats:10}") int maxRepeats,
+                           @Value("${jpashop.sql-budget.max-millis:1000}") long maxMillis) {
+        this.enabled = enabled;
+        this.maxStatements = maxStatements;
+        this.maxRepeats = maxRepeats;
+        this.maxMillis = maxMillis;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !enabled;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        SqlStatistics statistics = SqlStatementCounter.start();
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            SqlStatementCounter.stop(statistics);
+            if (isOverBudget(statistics)) {
+                log.warn("sql-budget exceeded method={} uri={} statements={} jdbcMillis={} maxRepeat={} repeatedSql=\"{}\"",
+                        request.getMethod(), request.getRequestURI(), statistics.getStatementCount(),
+                        statistics.getTotalMillis(), statistics.getMaxRepeat(), statistics.getMostRepeatedShape());
+            }
+        }
+    }
+
+    boolean isOverBudget(SqlStatistics statistics) {
+        return statistics.getStatementCount() > maxStatements
+                || statistics.getMaxRepeat() > maxRepeats
+                || statistics.getTotalMillis() > maxMillis;
+    }
+}
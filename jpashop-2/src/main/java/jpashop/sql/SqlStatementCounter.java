@@ -0,0 +1,59 @@
+package jpashop.sql;
+
+import com.p6spy.engine.common.StatementInformation;
+import com.p6spy.engine.event.SimpleJdbcEventListener;
+import org.springframework.stereotype.Component;
+
+import java.sql.SQLException;
+
+/**
+ * p6spy 로 실행되는 모든 SQL 을 현재 스레드에서 열려 있는 SqlStatistics 에 기록한다.
+ * p6spy-spring-boot-starter 가 JdbcEventListener 빈을 자동으로 등록해준다.
+ * 다른 스레드에서 실행된 SQL(OrderItemParallelLoader 등) 은 세지 않는다.
+ */
+@Component
+public class SqlStatementCounter extends SimpleJdbcEventListener {
+
+    private static final ThreadLocal<SqlStatistics> CURRENT = new ThreadLocal<>();
+
+    @Override
+    public void onAfterAnyExecute(StatementInformation statementInformation, long timeElapsedNanos, SQLException e) {
+        SqlStatistics statistics = CURRENT.get();
+        if (statistics != null) {
+            statistics.record(statementInformation.getSql(), timeElapsedNanos);
+        }
+    }
+
+    /**
+     * 현재 스레드에서 SQL 세기 시작. 이미 열려 있는 구간 안에서 열면 바깥 구간에도 함께 기록된다.
+     */
+    public static SqlStatistics start() {
+        SqlStatistics statistics = new SqlStatistics(CURRENT.get());
+        CURRENT.set(statistics);
+        return statistics;
+    }
+
+    public static void stop(SqlStatistics statistics) {
+        if (CURRENT.get() != statistics) {
+            throw new IllegalStateException("열린 순서의 반대로 닫아야 합니다.");
+        }
+        if (statistics.getParent() == null) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(statistics.getParent());
+        }
+    }
+
+    /**
+     * 테스트용. task 를 실행하는 동안 현재 스레드에서 실행된 SQL 통계
+     */
+    public static SqlStatistics count(Runnable task) {
+        SqlStatistics statistics = start();
+        try {
+            task.run();
+        } finally {
+            stop(statistics);
+        }
+        return statistics;
+    }
+}
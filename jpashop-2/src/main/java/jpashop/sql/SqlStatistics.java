@@ -0,0 +1,88 @@
+package jpashop.sql;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * 한 구간(요청, 테스트 호출) 동안 실행된 SQL 통계.
+ * 같은 모양(shape) 의 SQL 이 몇 번 반복됐는지로 N+1 을 찾는다.
+ */
+public class SqlStatistics {
+
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+    //batch fetch 의 in (?, ?, ...) 는 개수와 상관없이 같은 모양으로 본다.
+    private static final Pattern IN_LIST = Pattern.compile("(?i)\\bin\\s*\\(\\s*\\?(\\s*,\\s*\\?)*\\s*\\)");
+
+    private final SqlStatistics parent;
+    private final Map<String, Integer> shapeCounts = new HashMap<>();
+    private int statementCount;
+    private long totalNanos;
+
+    SqlStatistics(SqlStatistics parent) {
+        this.parent = parent;
+    }
+
+    SqlStatistics getParent() {
+        return parent;
+    }
+
+    void record(String sql, long elapsedNanos) {
+        String shape = shapeOf(sql);
+        for (SqlStatistics s = this; s != null; s = s.parent) {
+            s.statementCount++;
+            s.totalNanos += elapsedNanos;
+            s.shapeCounts.merge(shape, 1, Integer::sum);
+        }
+    }
+
+    static String shapeOf(String sql) {
+        if (sql == null) {
+            return "";
+        }
+        String shape = WHITESPACE.matcher(sql.trim()).replaceAll(" ");
+        return IN_LIST.matcher(shape).replaceAll("in (?)");
+    }
+
+    public int getStatementCount() {
+        return statementCount;
+    }
+
+    public long getTotalMillis() {
+        return totalNanos / 1_000_000;
+    }
+
+    /**
+     * 가장 많이 반복된 SQL 모양의 실행 횟수
+     */
+    public int getMaxRepeat() {
+        return shapeCounts.values().stream().mapToInt(Integer::intValue).max().orElse(0);
+    }
+
+    public String getMostRepeatedShape() {
+        return shapeCounts.entrySet().stream()
+                .max(Map.Entry.comparingByValue())
+                .map(Map.Entry::getKey)
+                .orElse(null);
+    }
+
+    public int getCount(String sqlShape) {
+        return shapeCounts.getOrDefault(shapeOf(sqlShape), 0);
+    }
+
+    /**
+     * sqlPrefix 로 시작하는 SQL 의 실행 횟수 (대소문자 무시)
+     */
+    public int getCountStartingWith(String sqlPrefix) {
+        String prefix = sqlPrefix.toLowerCase();
+        return shapeCounts.entrySet().stream()
+                .filter(e -> e.getKey().toLowerCase().startsWith(prefix))
+                .mapToInt(Map.Entry::getValue)
+                .sum();
+    }
+
+    @Override
+    public String toString() {
+        return "statements=" + statementCount + " jdbcMillis=" + getTotalMillis() + " maxRepeat=" + getMaxRepeat();
+    }
+}
@@ -0,0 +1,69 @@
+package jpashop.benchmark;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 성능 측정용 대량 주문 데이터.
+ * JPA 를 거치지 않고 JDBC batch 로 바로 넣는다.
+ */
+public class BulkOrderFixture {
+
+    private static final long ID_BASE = 1_000_000_000L;
+    private static final int BATCH_SIZE = 1000;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public BulkOrderFixture(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * 회원 1명, 상품 2개로 주문상품 2개짜리 주문을 orderCount 건 만든다.
+     */
+    public void insertOrders(int orderCount) {
+        long memberId = ID_BASE;
+        long itemId1 = ID_BASE + 1;
+        long itemId2 = ID_BASE + 2;
+
+        jdbcTemplate.update("insert into member (member_id, name, city, street, zipcode) values (?, ?, ?, ?, ?)",
+                memberId, "bench", "서울", "1", "1111");
+        jdbcTemplate.update("insert into item (dtype, item_id, name, price, stock_quantity, version) values ('B', ?, ?, ?, ?, 0)",
+                itemId1, "BENCH BOOK1", 10000, Integer.MAX_VALUE);
+        jdbcTemplate.update("insert into item (dtype, item_id, name, price, stock_quantity, version) values ('B', ?, ?, ?, ?, 0)",
+                itemId2, "BENCH BOOK2", 20000, Integer.MAX_VALUE);
+
+        Timestamp orderDate = Timestamp.valueOf(LocalDateTime.now());
+        List<Object[]> deliveries = new ArrayList<>();
+        List<Object[]> orders = new ArrayList<>();
+        List<Object[]> orderItems = new ArrayList<>();
+        for (int i = 0; i < orderCount; i++) {
+            long id = ID_BASE + 10 + i * 4L;
+            deliveries.add(new Object[]{id, "서울", "1", "1111", "READY"});
+            orders.add(new Object[]{id + 1, memberId, id, orderDate, "ORDER"});
+            orderItems.add(new Object[]{id + 2, itemId1, id + 1, 10000, 1});
+            orderItems.add(new Object[]{id + 3, itemId2, id + 1, 20000, 2});
+
+            if (orders.size() == BATCH_SIZE || i == orderCount - 1) {
+                jdbcTemplate.batchUpdate("insert into delivery (delivery_id, city, street, zipcode, status) values (?, ?, ?, ?, ?)", deliveries);
+                jdbcTemplate.batchUpdate("insert into orders (order_id, member_id, delivery_id, order_date, status) values (?, ?, ?, ?, ?)", orders);
+                jdbcTemplate.batchUpdate("insert into order_item (order_item_id, item_id, order_id, order_price, count) values (?, ?, ?, ?, ?)", orderItems);
+                deliveries.clear();
+                orders.clear();
+                orderItems.clear();
+            }
+        }
+    }
+
+    public void deleteOrders() {
+        jdbcTemplate.update("delete from order_item where order_item_id >= ?", ID_BASE);
+        jdbcTemplate.update("delete from orders where order_id >= ?", ID_BASE);
+        jdbcTemplate.update("delete from delivery where delivery_id >= ?", ID_BASE);
+        jdbcTemplate.update("delete from item where item_id >= ?", ID_BASE);
+        jdbcTemplate.update("delete from member where member_id >= ?", ID_BASE);
+    }
+}
@@ -0,0 +1,99 @@
+package jpashop.benchmark;
+
+import jpashop.domain.item.Item;
+import jpashop.sql.SqlStatementCounter;
+import jpashop.sql.SqlStatistics;
+import org.hibernate.engine.spi.SelfDirtinessTracker;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 영속성 컨텍스트에 상품 ITEM_COUNT 개가 있을 때 CHANGED 개만 바꾸고 flush 하는 비용.
+ * flush 한 번의 CPU 시간과 update 문의 set 컬럼 수를 잰다.
+ * 바이트코드 향상(./gradlew benchmark -Penhance) 전후를 비교한다.
+ */
+@Tag("benchmark")
+@SpringBootTest
+class DirtyCheckFlushBenchmark {
+
+    private static final long ITEM_BASE = 2_000_000_000L;
+    private static final int ITEM_COUNT = 50_000;
+    private static final int CHANGED = 10;
+    private static final int FLUSHES = 50;
+
+    @Autowired JdbcTemplate jdbcTemplate;
+    @Autowired TransactionTemplate transactionTemplate;
+    @Autowired EntityManager em;
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.update("delete from item where item_id >= ?", ITEM_BASE);
+    }
+
+    @Test
+    void flushCost() {
+        jdbcTemplate.update("delete from item where item_id >= ?", ITEM_BASE);
+        List<Object[]> items = new ArrayList<>();
+        for (int i = 0; i < ITEM_COUNT; i++) {
+            items.add(new Object[]{ITEM_BASE + i, "BENCH BOOK" + i, 10000, 1000, "author", "isbn" + i});
+        }
+        jdbcTemplate.batchUpdate("insert into item (dtype, item_id, name, price, stock_quantity, version, author, isbn) " +
+                "values ('B', ?, ?, ?, ?, 0, ?, ?)", items);
+
+        System.out.printf("enhanced=%s%n", SelfDirtinessTracker.class.isAssignableFrom(Item.class));
+        for (int round = 0; round < 3; round++) {
+            run();
+        }
+    }
+
+    private void run() {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        transactionTemplate.execute(status -> {
+            List<Item> loaded = em.createQuery("select i from Item i where i.id >= :base", Item.class)
+                    .setParameter("base", ITEM_BASE)
+                    .getResultList();
+
+            long cpuNanos = 0;
+            SqlStatistics statistics = SqlStatementCounter.start();
+            try {
+                for (int f = 0; f < FLUSHES; f++) {
+                    for (int i = 0; i < CHANGED; i++) {
+                        Item item = loaded.get((f * CHANGED + i) * 97 % loaded.size());
+                        item.setStockQuantity(item.getStockQuantity() + 1);
+                    }
+                    long start = threads.getCurrentThreadCpuTime();
+                    em.flush();
+                    cpuNanos += threads.getCurrentThreadCpuTime() - start;
+                }
+            } finally {
+                SqlStatementCounter.stop(statistics);
+            }
+
+            String update = statistics.getMostRepeatedShape();
+            System.out.printf("context=%d changed/flush=%d  flush cpu=%.2f ms  updates=%d  set columns=%d  (%s)%n",
+                    loaded.size(), CHANGED, cpuNanos / 1e6 / FLUSHES, statistics.getCountStartingWith("update"),
+                    setColumns(update), update);
+            status.setRollbackOnly();
+            return null;
+        });
+    }
+
+    private static int setColumns(String update) {
+        if (update == null || !update.startsWith("update")) {
+            return 0;
+        }
+        String set = update.substring(update.indexOf(" set ") + 5, update.indexOf(" where "));
+        return set.split(",").length;
+    }
+}
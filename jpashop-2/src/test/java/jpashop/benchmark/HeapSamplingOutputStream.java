@@ -0,0 +1,49 @@
+package jpashop.benchmark;
+
+import java.io.OutputStream;
+
+/**
+ * 받은 바이트는 버리고, 일정량마다 GC 후 live heap 증가분의 최댓값을 기록한다.
+ */
+class HeapSamplingOutputStream extends OutputStream {
+
+    private final long baseline;
+    private final long sampleBytes;
+    long bytes;
+    private long nextSample;
+    long peakHeap;
+
+    HeapSamplingOutputStream(long baseline) {
+        this(baseline, 1024 * 1024);
+    }
+
+    HeapSamplingOutputStream(long baseline, long sampleBytes) {
+        this.baseline = baseline;
+        this.sampleBytes = sampleBytes;
+        this.nextSample = sampleBytes;
+    }
+
+    @Override
+    public void write(int b) {
+        count(1);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) {
+        count(len);
+    }
+
+    private void count(int len) {
+        bytes += len;
+        if (bytes >= nextSample) {
+            nextSample += sampleBytes;
+            peakHeap = Math.max(peakHeap, liveHeap() - baseline);
+        }
+    }
+
+    static long liveHeap() {
+        System.gc();
+        Runtime runtime = Runtime.getRuntime();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
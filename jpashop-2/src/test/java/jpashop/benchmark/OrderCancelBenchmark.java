@@ -0,0 +1,69 @@
+package jpashop.benchmark;
+
+import jpashop.service.OrderCancelService;
+import jpashop.service.OrderService;
+import jpashop.sql.SqlStatementCounter;
+import jpashop.sql.SqlStatistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+
+/**
+ * 주문 ORDER_COUNT 건 일괄 취소. 주문마다 Order.cancel() 을 부르는 방식과 OrderCancelService 의 bulk update 비교.
+ */
+@Tag("benchmark")
+@SpringBootTest
+class OrderCancelBenchmark {
+
+    private static final long ITEM_ID1 = 1_000_000_001L;
+    private static final int ORDER_COUNT = 5_000;
+    private static final int STOCK = 1_000_000;
+
+    @Autowired JdbcTemplate jdbcTemplate;
+    @Autowired TransactionTemplate transactionTemplate;
+    @Autowired OrderService orderService;
+    @Autowired OrderCancelService orderCancelService;
+
+    @AfterEach
+    void tearDown() {
+        new BulkOrderFixture(jdbcTemplate).deleteOrders();
+    }
+
+    @Test
+    void cancelThroughput() {
+        BulkOrderFixture fixture = new BulkOrderFixture(jdbcTemplate);
+        fixture.deleteOrders();
+        fixture.insertOrders(ORDER_COUNT);
+        List<Long> orderIds = jdbcTemplate.queryForList(
+                "select order_id from orders where order_id >= ? order by order_id", Long.class, ITEM_ID1);
+
+        for (int round = 0; round < 3; round++) {
+            run("entity cancel x N", () -> transactionTemplate.execute(status -> {
+                orderIds.forEach(orderService::cancalOrder);
+                return null;
+            }));
+            run("bulk cancel", () -> orderCancelService.cancelOrders(orderIds));
+        }
+    }
+
+    private void run(String name, Runnable cancel) {
+        //재고가 Integer.MAX_VALUE 면 되돌릴 때 넘치므로 낮춰 둔다.
+        jdbcTemplate.update("update item set stock_quantity = ? where item_id >= ?", STOCK, ITEM_ID1);
+        jdbcTemplate.update("update orders set status = 'ORDER' where order_id >= ?", ITEM_ID1);
+
+        long start = System.nanoTime();
+        SqlStatistics statistics = SqlStatementCounter.count(cancel);
+        long nanos = System.nanoTime() - start;
+
+        Integer stock = jdbcTemplate.queryForObject(
+                "select stock_quantity from item where item_id = ?", Integer.class, ITEM_ID1);
+        System.out.printf("%-20s orders=%d  %.0f ms  statements=%d  (stock restored=%d)%n",
+                name, ORDER_COUNT, nanos / 1e6, statistics.getStatementCount(), stock - STOCK);
+    }
+}
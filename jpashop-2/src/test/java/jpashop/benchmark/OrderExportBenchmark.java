@@ -0,0 +1,71 @@
+package jpashop.benchmark;
+
+import jpashop.api.OrderNdjsonExporter;
+import jpashop.repository.order.query.OrderFlatDto;
+import jpashop.repository.order.query.OrderQueryRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+
+/**
+ * NDJSON 내보내기(/api/export/orders) 와 전체를 List 로 모으는 findAllByDto_flat 의 힙 사용량 비교.
+ * 주문 수를 늘려도 내보내기 쪽 힙은 거의 그대로여야 한다.
+ */
+@Tag("benchmark")
+@SpringBootTest
+class OrderExportBenchmark {
+
+    //첫 번째 1,000 건은 워밍업 용도
+    private static final int[] ORDER_COUNTS = {1_000, 10_000, 50_000};
+
+    @Autowired JdbcTemplate jdbcTemplate;
+    @Autowired TransactionTemplate transactionTemplate;
+    @Autowired OrderNdjsonExporter orderNdjsonExporter;
+    @Autowired OrderQueryRepository orderQueryRepository;
+
+    @AfterEach
+    void tearDown() {
+        new BulkOrderFixture(jdbcTemplate).deleteOrders();
+    }
+
+    @Test
+    void heapByOrderCount() throws Exception {
+        BulkOrderFixture fixture = new BulkOrderFixture(jdbcTemplate);
+        for (int orderCount : ORDER_COUNTS) {
+            fixture.deleteOrders();
+            fixture.insertOrders(orderCount);
+
+            //H2 캐시를 먼저 데워두기 위해 List 방식부터 잰다.
+            long baseline = liveHeap();
+            long start = System.nanoTime();
+            long[] listResult = transactionTemplate.execute(status -> {
+                List<OrderFlatDto> orders = orderQueryRepository.findAllByDto_flat();
+                long used = liveHeap();
+                //측정이 끝날 때까지 orders 가 수거되지 않도록 size 를 함께 돌려준다.
+                return new long[]{used, orders.size()};
+            });
+            long listMillis = (System.nanoTime() - start) / 1_000_000;
+            long listHeap = listResult[0] - baseline;
+
+            baseline = liveHeap();
+            HeapSamplingOutputStream out = new HeapSamplingOutputStream(baseline);
+            start = System.nanoTime();
+            long exported = orderNdjsonExporter.export(out);
+            long streamMillis = (System.nanoTime() - start) / 1_000_000;
+
+            System.out.printf("orders=%d list: loaded=%d liveHeap=%dKB %dms | stream: exported=%d peakLiveHeap=%dKB %dms bytes=%d%n",
+                    orderCount, listResult[1], listHeap / 1024, listMillis,
+                    exported, out.peakHeap / 1024, streamMillis, out.bytes);
+        }
+    }
+
+    private static long liveHeap() {
+        return HeapSamplingOutputStream.liveHeap();
+    }
+}
@@ -0,0 +1,83 @@
+package jpashop.benchmark;
+
+import jpashop.domain.Address;
+import jpashop.domain.OrderStatus;
+import jpashop.repository.order.query.OrderFlatAssembler;
+import jpashop.repository.order.query.OrderFlatDto;
+import jpashop.repository.order.query.OrderItemQueryDto;
+import jpashop.repository.order.query.OrderQueryDto;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+import static java.util.stream.Collectors.*;
+
+/**
+ * /api/v6/orders 의 flat -> 트리 조립. 기존 groupingBy 방식과 OrderFlatAssembler 의 할당량, 시간 비교.
+ */
+@Tag("benchmark")
+class OrderFlatAssemblerBenchmark {
+
+    private static final int ORDER_COUNT = 50_000;
+    private static final int ITEMS_PER_ORDER = 2;
+    private static final int WARMUP = 20;
+    private static final int ROUNDS = 20;
+
+    @Test
+    void allocationPerCall() {
+        List<OrderFlatDto> flats = new ArrayList<>();
+        Address address = new Address("서울", "가", "123");
+        LocalDateTime orderDate = LocalDateTime.now();
+        for (long orderId = 1; orderId <= ORDER_COUNT; orderId++) {
+            for (int i = 0; i < ITEMS_PER_ORDER; i++) {
+                flats.add(new OrderFlatDto(orderId, "회원", orderDate, OrderStatus.ORDER, address, "책" + i, 1000, 1));
+            }
+        }
+
+        measure("groupingBy", flats, OrderFlatAssemblerBenchmark::collectGroupingBy);
+        measure("assembler", flats, OrderFlatAssembler::assemble);
+    }
+
+    /**
+     * 변경 전 OrderApiController.ordersV6 의 조립 방식
+     */
+    private static List<OrderQueryDto> collectGroupingBy(List<OrderFlatDto> flats) {
+        return flats.stream()
+                .collect(groupingBy(o -> new OrderQueryDto(o.getOrderId(),
+                                o.getName(), o.getOrderDate(), o.getOrderStatus(), o.getAddress()),
+                        mapping(o -> new OrderItemQueryDto(o.getOrderId(),
+                                o.getItemName(), o.getOrderPrice(), o.getCount()), toList())
+                )).entrySet().stream()
+                .map(e -> new OrderQueryDto(e.getKey().getOrderId(),
+                        e.getKey().getName(), e.getKey().getOrderDate(), e.getKey().getOrderStatus(),
+                        e.getKey().getAddress(), e.getValue()))
+                .collect(toList());
+    }
+
+    private static void measure(String name, List<OrderFlatDto> flats,
+                                Function<List<OrderFlatDto>, List<OrderQueryDto>> assemble) {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+        int sink = 0;
+        for (int i = 0; i < WARMUP; i++) {
+            sink += assemble.apply(flats).size();
+        }
+
+        long allocatedBefore = threads.getThreadAllocatedBytes(threadId);
+        long start = System.nanoTime();
+        for (int i = 0; i < ROUNDS; i++) {
+            sink += assemble.apply(flats).size();
+        }
+        long nanos = System.nanoTime() - start;
+        long allocated = threads.getThreadAllocatedBytes(threadId) - allocatedBefore;
+
+        System.out.printf("%-10s rows=%d  %.2f ms/call  %d bytes/call  %.1f bytes/row  (sink=%d)%n",
+                name, flats.size(), nanos / 1e6 / ROUNDS, allocated / ROUNDS,
+                (double) allocated / ROUNDS / flats.size(), sink);
+    }
+}
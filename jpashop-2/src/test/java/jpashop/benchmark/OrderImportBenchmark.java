@@ -0,0 +1,132 @@
+package jpashop.benchmark;
+
+import jpashop.service.OrderImporter;
+import jpashop.service.OrderService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.Reader;
+import java.util.List;
+
+import static java.util.stream.Collectors.toList;
+
+/**
+ * 대량 주문 가져오기의 live heap. OrderService.order 를 한 트랜잭션에서 줄마다 부르는 방식과
+ * OrderImporter 의 청크 저장(flush/clear) 을 파일 크기별로 비교한다. 파일은 메모리에 만들지 않고 읽는 만큼 생성한다.
+ */
+@Tag("benchmark")
+@SpringBootTest
+class OrderImportBenchmark {
+
+    private static final long MEMBER_ID = 1_000_000_000L;
+    private static final long ITEM_ID1 = 1_000_000_001L;
+    private static final long ITEM_ID2 = 1_000_000_002L;
+    private static final int SAMPLE_ORDERS = 1000;
+
+    @Autowired JdbcTemplate jdbcTemplate;
+    @Autowired TransactionTemplate transactionTemplate;
+    @Autowired OrderService orderService;
+    @Autowired OrderImporter orderImporter;
+
+    @AfterEach
+    void tearDown() {
+        deleteOrders();
+    }
+
+    @Test
+    void liveHeapByFileSize() throws Exception {
+        deleteOrders();
+        new BulkOrderFixture(jdbcTemplate).insertOrders(0);
+
+        for (int orders : new int[]{2_000, 8_000}) {
+            perLineInOneTransaction(orders);
+            deleteOrders();
+            new BulkOrderFixture(jdbcTemplate).insertOrders(0);
+            chunked(orders);
+            deleteOrders();
+            new BulkOrderFixture(jdbcTemplate).insertOrders(0);
+        }
+    }
+
+    private void perLineInOneTransaction(int orders) {
+        long baseline = HeapSamplingOutputStream.liveHeap();
+        long[] peak = {0};
+        long start = System.nanoTime();
+        transactionTemplate.execute(status -> {
+            for (int i = 0; i < orders; i++) {
+                orderService.order(MEMBER_ID, i % 2 == 0 ? ITEM_ID1 : ITEM_ID2, 1);
+                if ((i + 1) % SAMPLE_ORDERS == 0) {
+                    peak[0] = Math.max(peak[0], HeapSamplingOutputStream.liveHeap() - baseline);
+                }
+            }
+            return null;
+        });
+        print("order() x N", orders, start, peak[0]);
+    }
+
+    private void chunked(int orders) throws Exception {
+        long baseline = HeapSamplingOutputStream.liveHeap();
+        long[] peak = {0};
+        long start = System.nanoTime();
+        orderImporter.importCsv(new CsvLines(orders),
+                progress -> peak[0] = Math.max(peak[0], HeapSamplingOutputStream.liveHeap() - baseline));
+        print("importer chunk=1000", orders, start, peak[0]);
+    }
+
+    private static void print(String name, int orders, long start, long peakHeap) {
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("%-20s orders=%-6d %.0f orders/s  peakLiveHeap=%.1f MB%n",
+                name, orders, orders / seconds, peakHeap / 1024.0 / 1024.0);
+    }
+
+    private void deleteOrders() {
+        List<Long> deliveryIds = jdbcTemplate.queryForList(
+                "select delivery_id from orders where member_id = ?", Long.class, MEMBER_ID);
+        jdbcTemplate.update("delete from order_summary where member_id = ?", MEMBER_ID);
+        jdbcTemplate.update("delete from order_item where item_id in (?, ?)", ITEM_ID1, ITEM_ID2);
+        jdbcTemplate.update("delete from orders where member_id = ?", MEMBER_ID);
+        jdbcTemplate.batchUpdate("delete from delivery where delivery_id = ?",
+                deliveryIds.stream().map(id -> new Object[]{id}).collect(toList()));
+        new BulkOrderFixture(jdbcTemplate).deleteOrders();
+    }
+
+    /**
+     * memberId,itemId,count 줄을 읽는 만큼 만든다.
+     */
+    private static class CsvLines extends Reader {
+
+        private final int lines;
+        private int line;
+        private String current = "memberId,itemId,count\n";
+        private int position;
+
+        CsvLines(int lines) {
+            this.lines = lines;
+        }
+
+        @Override
+        public int read(char[] buffer, int offset, int length) {
+            if (position == current.length()) {
+                if (line == lines) {
+                    return -1;
+                }
+                current = MEMBER_ID + "," + (line % 2 == 0 ? ITEM_ID1 : ITEM_ID2) + ",1\n";
+                position = 0;
+                line++;
+            }
+            int read = Math.min(length, current.length() - position);
+            current.getChars(position, position + read, buffer, offset);
+            position += read;
+            return read;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
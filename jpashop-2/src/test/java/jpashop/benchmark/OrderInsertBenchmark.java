@@ -0,0 +1,98 @@
+package jpashop.benchmark;
+
+import jpashop.service.OrderService;
+import jpashop.sql.SqlStatementCounter;
+import jpashop.sql.SqlStatistics;
+import org.hibernate.FlushMode;
+import org.hibernate.Session;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static java.util.stream.Collectors.toList;
+
+/**
+ * 주문 생성 insert 처리량. 한 트랜잭션에서 상품 2개짜리 주문을 ORDERS_PER_TX 건 만든다.
+ * batch_size 를 세션 단위로 1 로 낮춘 경우와 설정값(100), 커밋 때 한 번만 flush 하는 경우를 비교하고 주문당 SQL 수를 센다.
+ */
+@Tag("benchmark")
+@SpringBootTest
+class OrderInsertBenchmark {
+
+    private static final long MEMBER_ID = 1_000_000_000L;
+    private static final long ITEM_ID1 = 1_000_000_001L;
+    private static final long ITEM_ID2 = 1_000_000_002L;
+    private static final int ORDERS_PER_TX = 100;
+    private static final int TRANSACTIONS = 30;
+
+    @Autowired JdbcTemplate jdbcTemplate;
+    @Autowired TransactionTemplate transactionTemplate;
+    @Autowired EntityManager em;
+    @Autowired OrderService orderService;
+
+    @AfterEach
+    void tearDown() {
+        deleteOrders();
+    }
+
+    @Test
+    void insertThroughput() {
+        deleteOrders();
+        new BulkOrderFixture(jdbcTemplate).insertOrders(0);
+
+        for (int round = 0; round < 3; round++) {
+            run("batch_size=1", 1, FlushMode.AUTO);
+            run("batch_size=100", 100, FlushMode.AUTO);
+            run("batch_size=100 flush=COMMIT", 100, FlushMode.COMMIT);
+        }
+    }
+
+    private void run(String name, int batchSize, FlushMode flushMode) {
+        Map<Long, Integer> itemCounts = new HashMap<>();
+        itemCounts.put(ITEM_ID1, 1);
+        itemCounts.put(ITEM_ID2, 2);
+
+        long start = System.nanoTime();
+        SqlStatistics statistics = SqlStatementCounter.count(() -> {
+            for (int tx = 0; tx < TRANSACTIONS; tx++) {
+                transactionTemplate.execute(status -> {
+                    Session session = em.unwrap(Session.class);
+                    session.setJdbcBatchSize(batchSize);
+                    //AUTO 면 주문마다 상품 select 전에 flush 되어 batch 가 주문 단위로 끊긴다.
+                    session.setHibernateFlushMode(flushMode);
+                    for (int i = 0; i < ORDERS_PER_TX; i++) {
+                        orderService.order(MEMBER_ID, itemCounts);
+                    }
+                    return null;
+                });
+            }
+        });
+        long nanos = System.nanoTime() - start;
+        int orders = ORDERS_PER_TX * TRANSACTIONS;
+
+        System.out.printf("%-28s %.0f orders/s  statements/order=%.2f  (sequence=%d insert=%d update=%d select=%d)%n",
+                name, orders / (nanos / 1e9), (double) statistics.getStatementCount() / orders,
+                statistics.getCountStartingWith("call next value"), statistics.getCountStartingWith("insert"),
+                statistics.getCountStartingWith("update"), statistics.getCountStartingWith("select"));
+    }
+
+    private void deleteOrders() {
+        List<Long> deliveryIds = jdbcTemplate.queryForList(
+                "select delivery_id from orders where member_id = ?", Long.class, MEMBER_ID);
+        jdbcTemplate.update("delete from order_summary where member_id = ?", MEMBER_ID);
+        jdbcTemplate.update("delete from order_item where item_id in (?, ?)", ITEM_ID1, ITEM_ID2);
+        jdbcTemplate.update("delete from orders where member_id = ?", MEMBER_ID);
+        jdbcTemplate.batchUpdate("delete from delivery where delivery_id = ?",
+                deliveryIds.stream().map(id -> new Object[]{id}).collect(toList()));
+        new BulkOrderFixture(jdbcTemplate).deleteOrders();
+    }
+}
@@ -0,0 +1,61 @@
+package jpashop.benchmark;
+
+import jpashop.repository.order.query.OrderItemParallelLoader;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.List;
+
+/**
+ * 주문상품 조회를 chunk 로 나눴을 때 스레드 수에 따른 처리량.
+ * chunk 로 나누지 않는 findAllByDto_optimization 은 수천 건만 넘어도 in 절이 너무 커서 실행되지 않는다.
+ */
+@Tag("benchmark")
+@SpringBootTest
+class OrderItemLoadBenchmark {
+
+    private static final int ORDER_COUNT = 100_000;
+    private static final int CHUNK_SIZE = 1000;
+    private static final int[] THREADS = {1, 2, 4, 8};
+    private static final int ROUNDS = 3;
+
+    @Autowired JdbcTemplate jdbcTemplate;
+    @Autowired EntityManagerFactory emf;
+
+    @AfterEach
+    void tearDown() {
+        new BulkOrderFixture(jdbcTemplate).deleteOrders();
+    }
+
+    @Test
+    void throughputByThreads() {
+        BulkOrderFixture fixture = new BulkOrderFixture(jdbcTemplate);
+        fixture.deleteOrders();
+        fixture.insertOrders(ORDER_COUNT);
+        List<Long> orderIds = jdbcTemplate.queryForList("select order_id from orders order by order_id", Long.class);
+
+        System.out.printf("cpus=%d orders=%d chunkSize=%d%n",
+                Runtime.getRuntime().availableProcessors(), orderIds.size(), CHUNK_SIZE);
+        for (int threads : THREADS) {
+            OrderItemParallelLoader loader = new OrderItemParallelLoader(emf, CHUNK_SIZE, threads);
+            try {
+                loader.findOrderItemMap(orderIds); //워밍업
+                long start = System.nanoTime();
+                int loaded = 0;
+                for (int i = 0; i < ROUNDS; i++) {
+                    loaded += loader.findOrderItemMap(orderIds).size();
+                }
+                double seconds = (System.nanoTime() - start) / 1e9;
+                System.out.printf("threads=%d orders/s=%.0f (%d orders in %.2fs)%n",
+                        threads, loaded / seconds, loaded, seconds);
+            } finally {
+                loader.shutdown();
+            }
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package jpashop.benchmark;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jpashop.repository.order.query.OrderQueryRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+
+/**
+ * /api/v5/orders(DTO 조립 후 ObjectMapper) 와 /api/v8/orders(ResultSet -> JsonGenerator) 의
+ * 응답 시간, 요청당 할당량, 응답을 쓰는 동안의 최대 live heap 비교.
+ */
+@Tag("benchmark")
+@SpringBootTest
+class OrderJsonWriteBenchmark {
+
+    //v5 는 주문 id 를 in 절 하나에 모두 넣기 때문에 수만 건 부터는 HQL 파서가 StackOverflowError 를 낸다.
+    private static final int[] ORDER_COUNTS = {1_000, 5_000};
+    private static final int WARMUP = 5;
+    private static final int ROUNDS = 10;
+    private static final int FETCH_SIZE = 1000;
+
+    @Autowired JdbcTemplate jdbcTemplate;
+    @Autowired ObjectMapper objectMapper;
+    @Autowired OrderQueryRepository orderQueryRepository;
+
+    @AfterEach
+    void tearDown() {
+        new BulkOrderFixture(jdbcTemplate).deleteOrders();
+    }
+
+    @Test
+    void v5VersusJdbc() throws Exception {
+        BulkOrderFixture fixture = new BulkOrderFixture(jdbcTemplate);
+        for (int orderCount : ORDER_COUNTS) {
+            fixture.deleteOrders();
+            fixture.insertOrders(orderCount);
+
+            measure("v5", orderCount, this::writeV5);
+            measure("v8-jdbc", orderCount, this::writeJdbc);
+        }
+    }
+
+    private void writeV5(OutputStream out) throws IOException {
+        objectMapper.writeValue(out, orderQueryRepository.findAllByDto_optimization());
+    }
+
+    private void writeJdbc(OutputStream out) throws IOException {
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+            orderQueryRepository.writeAllByJdbc(generator, FETCH_SIZE);
+        }
+    }
+
+    private void measure(String name, int orderCount, ResponseWriter writer) throws IOException {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+        for (int i = 0; i < WARMUP; i++) {
+            writer.write(new HeapSamplingOutputStream(0, Long.MAX_VALUE));
+        }
+
+        HeapSamplingOutputStream discard = new HeapSamplingOutputStream(0, Long.MAX_VALUE);
+        long allocatedBefore = threads.getThreadAllocatedBytes(threadId);
+        long start = System.nanoTime();
+        for (int i = 0; i < ROUNDS; i++) {
+            writer.write(discard);
+        }
+        long nanos = System.nanoTime() - start;
+        long allocated = threads.getThreadAllocatedBytes(threadId) - allocatedBefore;
+
+        //응답 크기의 1/8 마다 GC 후 live heap 을 잰다.
+        long responseBytes = discard.bytes / ROUNDS;
+        HeapSamplingOutputStream sampling = new HeapSamplingOutputStream(HeapSamplingOutputStream.liveHeap(),
+                Math.max(1, responseBytes / 8));
+        writer.write(sampling);
+
+        System.out.printf("%-8s orders=%d  %.1f ms/req  %.2f MB/req  %.0f B/order  alloc-rate=%.0f MB/s  peakLiveHeap=%dKB  bytes=%d%n",
+                name, orderCount, nanos / 1e6 / ROUNDS, allocated / 1e6 / ROUNDS,
+                (double) allocated / ROUNDS / orderCount, allocated / 1e6 / (nanos / 1e9),
+                sampling.peakHeap / 1024, responseBytes);
+    }
+
+    private interface ResponseWriter {
+        void write(OutputStream out) throws IOException;
+    }
+}
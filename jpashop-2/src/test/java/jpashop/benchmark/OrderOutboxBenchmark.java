@@ -0,0 +1,69 @@
+package jpashop.benchmark;
+
+import jpashop.domain.OrderStatus;
+import jpashop.outbox.InMemoryOrderEventPublisher;
+import jpashop.outbox.OrderOutboxRelay;
+import jpashop.repository.OrderOutboxRepository;
+import jpashop.sql.SqlStatementCounter;
+import jpashop.sql.SqlStatistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * outbox 에 쌓인 EVENT_COUNT 건을 릴레이가 비우는 처리량. batch-size 별 이벤트/초와 SQL 수를 잰다.
+ */
+@Tag("benchmark")
+@SpringBootTest
+class OrderOutboxBenchmark {
+
+    private static final long ID_BASE = 1_000_000_000L;
+    private static final int EVENT_COUNT = 50_000;
+
+    @Autowired JdbcTemplate jdbcTemplate;
+    @Autowired PlatformTransactionManager transactionManager;
+    @Autowired OrderOutboxRepository orderOutboxRepository;
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.update("delete from order_outbox");
+    }
+
+    @Test
+    void relayThroughput() {
+        for (int round = 0; round < 3; round++) {
+            for (int batchSize : new int[]{10, 100, 1000}) {
+                run(batchSize);
+            }
+        }
+    }
+
+    private void run(int batchSize) {
+        jdbcTemplate.update("delete from order_outbox");
+        Timestamp createdAt = Timestamp.valueOf(LocalDateTime.now());
+        List<Object[]> events = new ArrayList<>(EVENT_COUNT);
+        for (int i = 0; i < EVENT_COUNT; i++) {
+            events.add(new Object[]{ID_BASE + i, ID_BASE + i, OrderStatus.ORDER.name(), createdAt});
+        }
+        jdbcTemplate.batchUpdate("insert into order_outbox (order_outbox_id, order_id, status, created_at) values (?, ?, ?, ?)", events);
+
+        OrderOutboxRelay relay = new OrderOutboxRelay(orderOutboxRepository,
+                new InMemoryOrderEventPublisher(EVENT_COUNT), transactionManager, true, batchSize);
+        int[] relayed = new int[1];
+        long start = System.nanoTime();
+        SqlStatistics statistics = SqlStatementCounter.count(() -> relayed[0] = relay.relay());
+        long nanos = System.nanoTime() - start;
+
+        System.out.printf("batch-size=%-5d events=%d  %.0f events/s  statements=%d%n",
+                batchSize, relayed[0], relayed[0] / (nanos / 1e9), statistics.getStatementCount());
+    }
+}
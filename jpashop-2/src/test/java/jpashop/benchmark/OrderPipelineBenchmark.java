@@ -0,0 +1,116 @@
+package jpashop.benchmark;
+
+import jpashop.service.OrderPipeline;
+import jpashop.service.OrderService;
+import jpashop.service.OrderTicket;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+import static java.util.stream.Collectors.toList;
+
+/**
+ * 같은 상품 2개를 주문하는 클라이언트 CLIENTS 개가 동시에 주문할 때 처리량과 지연 시간.
+ * 동기 주문(OrderService.order, 주문마다 트랜잭션) 과 OrderPipeline(묶음마다 트랜잭션) 을 비교한다.
+ * 비동기는 접수부터 커밋까지를 지연 시간으로 잰다.
+ */
+@Tag("benchmark")
+@SpringBootTest
+class OrderPipelineBenchmark {
+
+    private static final long MEMBER_ID = 1_000_000_000L;
+    private static final long ITEM_ID1 = 1_000_000_001L;
+    private static final long ITEM_ID2 = 1_000_000_002L;
+    private static final int CLIENTS = 16;
+    private static final int ORDERS_PER_CLIENT = 200;
+
+    @Autowired JdbcTemplate jdbcTemplate;
+    @Autowired OrderService orderService;
+
+    @AfterEach
+    void tearDown() {
+        deleteOrders();
+    }
+
+    @Test
+    void throughputAndLatency() throws Exception {
+        deleteOrders();
+        new BulkOrderFixture(jdbcTemplate).insertOrders(0);
+        Map<Long, Integer> itemCounts = new HashMap<>();
+        itemCounts.put(ITEM_ID1, 1);
+        itemCounts.put(ITEM_ID2, 2);
+
+        OrderPipeline pipeline = new OrderPipeline(orderService, true, 10_000, 2, 100, 60_000);
+        try {
+            for (int round = 0; round < 3; round++) {
+                run("sync", () -> {
+                    long start = System.nanoTime();
+                    orderService.order(MEMBER_ID, itemCounts);
+                    return System.nanoTime() - start;
+                });
+                run("pipeline writers=2", () -> {
+                    OrderTicket ticket = pipeline.submit(MEMBER_ID, itemCounts);
+                    try {
+                        ticket.getResult().get(30, TimeUnit.SECONDS);
+                    } catch (Exception e) {
+                        throw new IllegalStateException(e);
+                    }
+                    return ticket.getCompletedNanos() - ticket.getSubmittedNanos();
+                });
+            }
+        } finally {
+            pipeline.shutdown();
+        }
+    }
+
+    private void run(String name, LongSupplier order) throws Exception {
+        ExecutorService clients = Executors.newFixedThreadPool(CLIENTS);
+        long start = System.nanoTime();
+        List<Future<long[]>> futures = new ArrayList<>();
+        for (int c = 0; c < CLIENTS; c++) {
+            futures.add(clients.submit(() -> {
+                long[] latencies = new long[ORDERS_PER_CLIENT];
+                for (int i = 0; i < ORDERS_PER_CLIENT; i++) {
+                    latencies[i] = order.getAsLong();
+                }
+                return latencies;
+            }));
+        }
+        long[] latencies = new long[CLIENTS * ORDERS_PER_CLIENT];
+        for (int c = 0; c < CLIENTS; c++) {
+            System.arraycopy(futures.get(c).get(), 0, latencies, c * ORDERS_PER_CLIENT, ORDERS_PER_CLIENT);
+        }
+        long nanos = System.nanoTime() - start;
+        clients.shutdown();
+
+        Arrays.sort(latencies);
+        System.out.printf("%-20s %.0f orders/s  p50=%.1f ms  p99=%.1f ms%n",
+                name, latencies.length / (nanos / 1e9),
+                latencies[latencies.length / 2] / 1e6, latencies[latencies.length * 99 / 100] / 1e6);
+    }
+
+    private void deleteOrders() {
+        List<Long> deliveryIds = jdbcTemplate.queryForList(
+                "select delivery_id from orders where member_id = ?", Long.class, MEMBER_ID);
+        jdbcTemplate.update("delete from order_summary where member_id = ?", MEMBER_ID);
+        jdbcTemplate.update("delete from order_item where item_id in (?, ?)", ITEM_ID1, ITEM_ID2);
+        jdbcTemplate.update("delete from orders where member_id = ?", MEMBER_ID);
+        jdbcTemplate.batchUpdate("delete from delivery where delivery_id = ?",
+                deliveryIds.stream().map(id -> new Object[]{id}).collect(toList()));
+        new BulkOrderFixture(jdbcTemplate).deleteOrders();
+    }
+}
@@ -0,0 +1,116 @@
+package jpashop.benchmark;
+
+import jpashop.domain.Order;
+import jpashop.domain.OrderStatus;
+import jpashop.repository.MemberNameIndex;
+import jpashop.repository.OrderRepository;
+import jpashop.repository.OrderSearch;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * 주문 검색 화면의 findAllByCriteria(매번 Criteria 트리 생성) 와
+ * findAllBySearch(조건 조합별 JPQL 템플릿) 의 초당 검색 수 비교.
+ * 쿼리 생성 비용이 드러나도록 주문은 적게 넣는다.
+ */
+@Tag("benchmark")
+@SpringBootTest
+class OrderSearchBenchmark {
+
+    private static final int ORDER_COUNT = 10;
+    private static final int SEARCHES = 50_000;
+    private static final int MEMBER_COUNT = 50_000;
+    private static final int NAME_ORDER_COUNT = 10_000;
+    private static final int NAME_SEARCHES = 500;
+
+    @Autowired JdbcTemplate jdbcTemplate;
+    @Autowired TransactionTemplate transactionTemplate;
+    @Autowired EntityManager em;
+    @Autowired OrderRepository orderRepository;
+    @Autowired MemberNameIndex memberNameIndex;
+
+    @AfterEach
+    void tearDown() {
+        new BulkOrderFixture(jdbcTemplate).deleteOrders();
+    }
+
+    @Test
+    void searchesPerSecond() {
+        new BulkOrderFixture(jdbcTemplate).insertOrders(ORDER_COUNT);
+        //JDBC 로 넣은 회원은 MemberService 를 거치지 않는다.
+        memberNameIndex.rebuild();
+        OrderSearch[] searches = {
+                search(null, null), search(OrderStatus.ORDER, null),
+                search(null, "bench"), search(OrderStatus.ORDER, "bench")};
+
+        for (int round = 0; round < 3; round++) {
+            run("criteria", searches, orderRepository::findAllByCriteria);
+            run("template", searches, orderRepository::findAllBySearch);
+        }
+    }
+
+    /**
+     * 회원이 많을 때 이름 검색. criteria 는 like '%이름%' 로 member 를 모두 훑고,
+     * template 은 MemberNameIndex 의 후보 id 로 좁힌 뒤 조회한다.
+     */
+    @Test
+    void memberNameSearchesPerSecond() {
+        new BulkOrderFixture(jdbcTemplate).insertOrders(NAME_ORDER_COUNT);
+        List<Object[]> members = new ArrayList<>();
+        for (int i = 0; i < MEMBER_COUNT; i++) {
+            members.add(new Object[]{1_500_000_000L + i, "member-" + i});
+        }
+        jdbcTemplate.batchUpdate("insert into member (member_id, name) values (?, ?)", members);
+        memberNameIndex.rebuild();
+
+        OrderSearch[] searches = {search(null, "member-4242")};
+        for (int round = 0; round < 3; round++) {
+            run("criteria", searches, orderRepository::findAllByCriteria, NAME_SEARCHES);
+            run("template", searches, orderRepository::findAllBySearch, NAME_SEARCHES);
+        }
+    }
+
+    private static OrderSearch search(OrderStatus status, String memberName) {
+        OrderSearch orderSearch = new OrderSearch();
+        orderSearch.setOrderStatus(status);
+        orderSearch.setMemberName(memberName);
+        return orderSearch;
+    }
+
+    private void run(String name, OrderSearch[] searches, Function<OrderSearch, List<Order>> search) {
+        run(name, searches, search, SEARCHES);
+    }
+
+    private void run(String name, OrderSearch[] searches, Function<OrderSearch, List<Order>> search, int count) {
+        loop(count / 2, searches, search);
+        long start = System.nanoTime();
+        long found = loop(count, searches, search);
+        long nanos = System.nanoTime() - start;
+        System.out.printf("%-8s %.0f searches/s  %.1f us/search  (found=%d)%n",
+                name, count / (nanos / 1e9), nanos / 1e3 / count, found);
+    }
+
+    private long loop(int count, OrderSearch[] searches, Function<OrderSearch, List<Order>> search) {
+        return transactionTemplate.execute(status -> {
+            long found = 0;
+            for (int i = 0; i < count; i++) {
+                found += search.apply(searches[i % searches.length]).size();
+                //영속성 컨텍스트가 커지지 않도록 주기적으로 비운다.
+                if (i % 100 == 0) {
+                    em.clear();
+                }
+            }
+            return found;
+        });
+    }
+}
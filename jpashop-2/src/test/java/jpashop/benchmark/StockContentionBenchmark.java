@@ -0,0 +1,148 @@
+package jpashop.benchmark;
+
+import jpashop.domain.Delivery;
+import jpashop.domain.Member;
+import jpashop.domain.Order;
+import jpashop.domain.OrderItem;
+import jpashop.domain.item.Item;
+import jpashop.exception.NotEnoughStockException;
+import jpashop.repository.order.summary.OrderSummaryRepository;
+import jpashop.service.ItemContention;
+import jpashop.service.OptimisticRetryExecutor;
+import jpashop.service.OrderService;
+import jpashop.service.StockLedger;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+
+/**
+ * 상품 하나에 여러 스레드가 동시에 1개씩 주문.
+ * 기존 방식(상품을 읽어서 removeStock 후 dirty checking, @Version 충돌 시 실패 또는 재시도) 과
+ * OrderService.order(조건부 update) 의 처리량과 정확성(주문 수 + 남은 재고 == 처음 재고) 비교.
+ */
+@Tag("benchmark")
+@SpringBootTest
+class StockContentionBenchmark {
+
+    private static final long MEMBER_ID = 1_000_000_000L;
+    private static final long ITEM_ID = 1_000_000_001L;
+    private static final int STOCK = 2_000;
+    private static final int[] THREADS = {1, 4, 16};
+
+    @Autowired JdbcTemplate jdbcTemplate;
+    @Autowired TransactionTemplate transactionTemplate;
+    @Autowired EntityManager em;
+    @Autowired OrderService orderService;
+    @Autowired OrderSummaryRepository orderSummaryRepository;
+    @Autowired StockLedger stockLedger;
+
+    @AfterEach
+    void tearDown() {
+        deleteOrders();
+    }
+
+    /**
+     * JPA 로 만든 주문은 id 가 BulkOrderFixture 범위 밖이라 회원, 상품 기준으로 지운다.
+     */
+    private void deleteOrders() {
+        List<Long> deliveryIds = jdbcTemplate.queryForList(
+                "select delivery_id from orders where member_id = ?", Long.class, MEMBER_ID);
+        jdbcTemplate.update("delete from order_summary where member_id = ?", MEMBER_ID);
+        jdbcTemplate.update("delete from order_item where item_id = ?", ITEM_ID);
+        jdbcTemplate.update("delete from orders where member_id = ?", MEMBER_ID);
+        List<Object[]> args = new ArrayList<>();
+        deliveryIds.forEach(id -> args.add(new Object[]{id}));
+        jdbcTemplate.batchUpdate("delete from delivery where delivery_id = ?", args);
+        new BulkOrderFixture(jdbcTemplate).deleteOrders();
+    }
+
+    @Test
+    void hotItem() throws Exception {
+        for (int threads : THREADS) {
+            run("read-modify-write", threads, this::orderByEntity);
+            OptimisticRetryExecutor retry = new OptimisticRetryExecutor(true, 5, 1, 20);
+            run("rmw + retry", threads, (memberId, itemId) -> retry.run(itemId, () -> orderByEntity(memberId, itemId)));
+            for (ItemContention c : retry.stats()) {
+                System.out.printf("  retry stats: conflicts=%d retries=%d giveUps=%d%n", c.getConflicts(), c.getRetries(), c.getGiveUps());
+            }
+            run("conditional-update", threads, (memberId, itemId) -> orderService.order(memberId, itemId, 1));
+            stockLedger.cover(ITEM_ID);
+            run("stock-ledger", threads, (memberId, itemId) -> orderService.order(memberId, itemId, 1));
+        }
+    }
+
+    /**
+     * 변경 전 OrderService.order
+     */
+    private void orderByEntity(Long memberId, Long itemId) {
+        transactionTemplate.execute(status -> {
+            Member member = em.find(Member.class, memberId);
+            Item item = em.find(Item.class, itemId);
+            Delivery delivery = new Delivery();
+            delivery.setAddress(member.getAddress());
+            Order order = Order.createOrder(member, delivery, OrderItem.createOrderItem(item, item.getPrice(), 1));
+            em.persist(order);
+            orderSummaryRepository.save(order);
+            return null;
+        });
+    }
+
+    private void run(String name, int threads, BiConsumer<Long, Long> order) throws Exception {
+        deleteOrders();
+        new BulkOrderFixture(jdbcTemplate).insertOrders(0);
+        jdbcTemplate.update("update item set stock_quantity = ? where item_id = ?", STOCK, ITEM_ID);
+        //JDBC 로 바꾼 재고를 장부가 다시 읽도록
+        transactionTemplate.execute(status -> {
+            stockLedger.overwritten(ITEM_ID);
+            return null;
+        });
+
+        AtomicInteger succeeded = new AtomicInteger();
+        AtomicInteger soldOut = new AtomicInteger();
+        AtomicInteger failed = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        long start = System.nanoTime();
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            futures.add(executor.submit(() -> {
+                //재고가 떨어질 때까지 주문. 재고보다 많이 성공하면 초과 판매.
+                for (int i = 0; i < STOCK * 2; i++) {
+                    try {
+                        order.accept(MEMBER_ID, ITEM_ID);
+                        succeeded.incrementAndGet();
+                    } catch (NotEnoughStockException e) {
+                        soldOut.incrementAndGet();
+                        return;
+                    } catch (RuntimeException e) {
+                        failed.incrementAndGet();
+                    }
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        long nanos = System.nanoTime() - start;
+        executor.shutdown();
+        stockLedger.flush();
+
+        int stockLeft = jdbcTemplate.queryForObject("select stock_quantity from item where item_id = ?", Integer.class, ITEM_ID);
+        int ordered = jdbcTemplate.queryForObject("select count(*) from order_item where item_id = ?", Integer.class, ITEM_ID);
+        System.out.printf("%-18s threads=%-2d %.0f orders/s  ordered=%d stockLeft=%d  oversold=%d  errors=%d  %s%n",
+                name, threads, succeeded.get() / (nanos / 1e9), ordered, stockLeft,
+                ordered + stockLeft - STOCK, failed.get(), ordered + stockLeft == STOCK ? "OK" : "LOST UPDATE");
+    }
+}
@@ -0,0 +1,32 @@
+package jpashop.cache;
+
+import jpashop.domain.Address;
+import jpashop.domain.OrderStatus;
+import jpashop.repository.order.simpleQuery.OrderSimpleQueryDto;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class OrderListingCacheTest {
+
+    @Test
+    public void 캐시된_목록은_수정_불가() throws Exception {
+        //given
+        OrderListingCache cache = new OrderListingCache(10);
+        List<OrderSimpleQueryDto> loaded = new ArrayList<>();
+        loaded.add(new OrderSimpleQueryDto(1L, "회원1", LocalDateTime.now(), OrderStatus.ORDER, new Address("서울", "가", "123")));
+        List<OrderSimpleQueryDto> orders = cache.getSimpleOrders("v4", () -> loaded);
+
+        //when
+        loaded.clear();
+
+        //then
+        assertThrows(UnsupportedOperationException.class, orders::clear, "다른 요청이 받을 목록을 바꿀 수 없어야 한다");
+        assertEquals(1, cache.getSimpleOrders("v4", ArrayList::new).size(), "loader 가 돌려준 목록을 바꿔도 캐시는 그대로여야 한다");
+    }
+}
@@ -0,0 +1,62 @@
+package jpashop.cache;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class TaggedCacheTest {
+
+    @Test
+    public void 태그_무효화() throws Exception {
+        //given
+        TaggedCache<String, String> cache = new TaggedCache<>(10);
+        cache.get("a", () -> "A", v -> Arrays.asList("orders", "order:1"));
+        cache.get("b", () -> "B", v -> Arrays.asList("orders", "order:2"));
+
+        //when
+        cache.invalidateTag("order:1");
+
+        //then
+        assertEquals("B", cache.get("b", () -> "B2", v -> Collections.emptyList()), "다른 태그의 엔트리는 남아 있어야 한다");
+        assertEquals("A2", cache.get("a", () -> "A2", v -> Collections.emptyList()), "무효화된 엔트리는 다시 조회해야 한다");
+        CacheStats stats = cache.stats();
+        assertEquals(1, stats.getHits());
+        assertEquals(3, stats.getMisses());
+        assertEquals(1, stats.getInvalidations());
+    }
+
+    @Test
+    public void 크기_제한() throws Exception {
+        //given
+        TaggedCache<String, String> cache = new TaggedCache<>(2);
+        cache.get("a", () -> "A", v -> Collections.singletonList("t"));
+        cache.get("b", () -> "B", v -> Collections.singletonList("t"));
+        cache.get("a", () -> "A", v -> Collections.singletonList("t"));
+
+        //when
+        cache.get("c", () -> "C", v -> Collections.singletonList("t"));
+
+        //then
+        assertEquals(2, cache.size());
+        assertEquals(1, cache.stats().getEvictions(), "가장 오래 쓰지 않은 b 가 제거되어야 한다");
+        assertEquals("A", cache.get("a", () -> "A2", v -> Collections.emptyList()));
+    }
+
+    @Test
+    public void 조회중_무효화되면_저장하지_않음() throws Exception {
+        //given
+        TaggedCache<String, String> cache = new TaggedCache<>(10);
+
+        //when
+        cache.get("a", () -> {
+            cache.invalidateTag("orders");
+            return "stale";
+        }, v -> Collections.singletonList("orders"));
+
+        //then
+        assertEquals(0, cache.size(), "조회 도중 무효화가 있었으면 오래된 값을 캐시에 넣으면 안 된다");
+    }
+}
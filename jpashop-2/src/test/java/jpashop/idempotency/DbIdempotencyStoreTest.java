@@ -0,0 +1,50 @@
+package jpashop.idempotency;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.transaction.annotation.Transactional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+@ExtendWith(SpringExtension.class)
+@SpringBootTest
+@Transactional
+class DbIdempotencyStoreTest {
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @Test
+    public void 다른_서버에서_키_조회() throws Exception {
+        //given
+        DbIdempotencyStore server1 = new DbIdempotencyStore(jdbcTemplate, 10, 60_000);
+        DbIdempotencyStore server2 = new DbIdempotencyStore(jdbcTemplate, 10, 60_000);
+
+        //when
+        server1.save("key-1", new IdempotencyRecord(100L, "hash"));
+
+        //then
+        assertEquals(100L, (long) server2.find("key-1").getOrderId(), "메모리에 없으면 테이블에서 찾아야 한다");
+        assertNull(server2.find("key-2"));
+    }
+
+    @Test
+    public void 만료된_키_삭제() throws Exception {
+        //given
+        DbIdempotencyStore store = new DbIdempotencyStore(jdbcTemplate, 10, 0);
+        store.save("key-1", new IdempotencyRecord(100L, "hash"));
+        Thread.sleep(5);
+
+        //when
+        int purged = store.purgeExpired();
+
+        //then
+        assertEquals(1, purged);
+        assertNull(new DbIdempotencyStore(jdbcTemplate, 10, 0).find("key-1"));
+    }
+}
@@ -0,0 +1,183 @@
+package jpashop.idempotency;
+
+import jpashop.exception.IdempotencyKeyReusedException;
+import jpashop.exception.InvalidIdempotencyKeyException;
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class IdempotentExecutorTest {
+
+    @Test
+    public void 같은키_재시도() throws Exception {
+        //given
+        IdempotentExecutor executor = new IdempotentExecutor(new InMemoryIdempotencyStore(10, 60_000), 1000);
+        AtomicInteger calls = new AtomicInteger();
+
+        //when
+        Long first = executor.execute("key-1", "hash", () -> 100L + calls.incrementAndGet());
+        Long retry = executor.execute("key-1", "hash", () -> 100L + calls.incrementAndGet());
+        Long other = executor.execute("key-2", "hash", () -> 100L + calls.incrementAndGet());
+
+        //then
+        assertEquals(2, calls.get(), "같은 키로 다시 보낸 요청은 실행하지 않아야 한다");
+        assertEquals(first, retry, "처음 주문 id 를 돌려줘야 한다");
+        assertEquals(102L, (long) other);
+    }
+
+    @Test
+    public void 동시_중복요청은_기다림() throws Exception {
+        //given
+        IdempotentExecutor executor = new IdempotentExecutor(new InMemoryIdempotencyStore(10, 60_000), 5000);
+        AtomicInteger calls = new AtomicInteger();
+        CountDownLatch entered = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<Long> first = CompletableFuture.supplyAsync(() -> executor.execute("key", "hash", () -> {
+            calls.incrementAndGet();
+            entered.countDown();
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return 1L;
+        }));
+        entered.await(5, TimeUnit.SECONDS);
+
+        //when
+        CompletableFuture<Long> duplicate = CompletableFuture.supplyAsync(() -> executor.execute("key", "hash", () -> {
+            calls.incrementAndGet();
+            return 2L;
+        }));
+        Thread.sleep(50);
+        release.countDown();
+
+        //then
+        assertEquals(1L, (long) first.get(5, TimeUnit.SECONDS));
+        assertEquals(1L, (long) duplicate.get(5, TimeUnit.SECONDS), "처리 중인 요청의 결과를 받아야 한다");
+        assertEquals(1, calls.get(), "같은 키 요청을 동시에 실행하지 않아야 한다");
+    }
+
+    @Test
+    public void 실패하면_다시_처리() throws Exception {
+        //given
+        IdempotentExecutor executor = new IdempotentExecutor(new InMemoryIdempotencyStore(10, 60_000), 1000);
+
+        //when
+        assertThrows(IllegalStateException.class, () -> executor.execute("key", "hash", () -> {
+            throw new IllegalStateException("실패");
+        }));
+        Long orderId = executor.execute("key", "hash", () -> 7L);
+
+        //then
+        assertEquals(7L, (long) orderId, "실패한 요청의 키는 저장하지 않아야 한다");
+    }
+
+    @Test
+    public void 메모리_저장소_크기와_만료() throws Exception {
+        //given
+        InMemoryIdempotencyStore store = new InMemoryIdempotencyStore(2, 60_000);
+        InMemoryIdempotencyStore expiring = new InMemoryIdempotencyStore(2, 0);
+
+        //when
+        store.save("a", new IdempotencyRecord(1L, "hash"));
+        store.save("b", new IdempotencyRecord(2L, "hash"));
+        store.save("c", new IdempotencyRecord(3L, "hash"));
+        expiring.save("a", new IdempotencyRecord(1L, "hash"));
+        Thread.sleep(1);
+
+        //then
+        assertNull(store.find("a"), "max-keys 를 넘으면 오래된 키부터 버린다");
+        assertEquals(3L, (long) store.find("c").getOrderId());
+        assertEquals(2, store.size());
+        assertNull(expiring.find("a"), "ttl 이 지난 키는 없는 것으로 본다");
+    }
+
+    @Test
+    public void 다른_내용으로_키_재사용() throws Exception {
+        //given
+        IdempotentExecutor executor = new IdempotentExecutor(new InMemoryIdempotencyStore(10, 60_000), 1000);
+        AtomicInteger calls = new AtomicInteger();
+        executor.executeOrder(1L, "key", Collections.singletonMap(10L, 1), () -> 100L + calls.incrementAndGet());
+
+        //when, then
+        assertThrows(IdempotencyKeyReusedException.class,
+                () -> executor.executeOrder(1L, "key", Collections.singletonMap(10L, 2), () -> 100L + calls.incrementAndGet()),
+                "같은 키로 내용이 다르면 처음 주문을 돌려주지 않아야 한다");
+        Long otherMember = executor.executeOrder(2L, "key", Collections.singletonMap(10L, 1), () -> 100L + calls.incrementAndGet());
+        assertEquals(102L, (long) otherMember, "다른 회원의 같은 키는 따로 처리해야 한다");
+    }
+
+    @Test
+    public void 키_저장_실패해도_주문_id_반환() throws Exception {
+        //given
+        InMemoryIdempotencyStore local = new InMemoryIdempotencyStore(10, 60_000);
+        IdempotencyStore failing = new IdempotencyStore() {
+            @Override
+            public IdempotencyRecord find(String key) {
+                return local.find(key);
+            }
+
+            @Override
+            public void save(String key, IdempotencyRecord record) {
+                local.save(key, record);
+                throw new IllegalStateException("DB 장애");
+            }
+        };
+        IdempotentExecutor executor = new IdempotentExecutor(failing, 1000);
+        AtomicInteger calls = new AtomicInteger();
+
+        //when
+        Long first = executor.execute("key", "hash", () -> 100L + calls.incrementAndGet());
+        Long retry = executor.execute("key", "hash", () -> 100L + calls.incrementAndGet());
+
+        //then
+        assertEquals(101L, (long) first, "커밋된 주문 id 를 돌려줘야 한다");
+        assertEquals(first, retry, "메모리에 남은 키로 재시도를 걸러야 한다");
+        assertEquals(1, calls.get());
+    }
+
+    @Test
+    public void 긴_키_거절() throws Exception {
+        //given
+        IdempotentExecutor executor = new IdempotentExecutor(new InMemoryIdempotencyStore(10, 60_000), 1000);
+        StringBuilder key = new StringBuilder();
+        for (int i = 0; i <= IdempotentExecutor.MAX_KEY_LENGTH; i++) {
+            key.append('k');
+        }
+        AtomicInteger calls = new AtomicInteger();
+
+        //when
+        assertThrows(InvalidIdempotencyKeyException.class,
+                () -> executor.executeOrder(1L, key.toString(), Collections.singletonMap(1L, 1), () -> 100L + calls.incrementAndGet()));
+
+        //then
+        assertEquals(0, calls.get(), "저장할 수 없는 키로는 주문하지 않아야 한다");
+    }
+
+    @Test
+    public void 비동기_접수_재시도() throws Exception {
+        //given
+        IdempotentExecutor executor = new IdempotentExecutor(new InMemoryIdempotencyStore(10, 60_000), 1000);
+        AtomicInteger submits = new AtomicInteger();
+
+        //when
+        Long ticketId = executor.executeAsyncOrder(1L, "key", Collections.singletonMap(1L, 1), () -> (long) submits.incrementAndGet());
+        Long retry = executor.executeAsyncOrder(1L, "key", Collections.singletonMap(1L, 1), () -> (long) submits.incrementAndGet());
+
+        //then
+        assertEquals(1, submits.get(), "같은 키로 다시 보낸 요청은 다시 접수하지 않아야 한다");
+        assertEquals(ticketId, retry, "처음 ticketId 를 돌려줘야 한다");
+        assertThrows(IdempotencyKeyReusedException.class,
+                () -> executor.executeOrder(1L, "key", Collections.singletonMap(1L, 1), () -> 100L),
+                "비동기로 접수한 키를 동기 주문에 쓰면 거절해야 한다");
+    }
+}
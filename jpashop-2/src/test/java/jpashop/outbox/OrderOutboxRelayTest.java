@@ -0,0 +1,107 @@
+package jpashop.outbox;
+
+import jpashop.domain.Address;
+import jpashop.domain.Member;
+import jpashop.domain.OrderOutbox;
+import jpashop.domain.OrderStatus;
+import jpashop.domain.item.Book;
+import jpashop.repository.OrderOutboxRepository;
+import jpashop.service.OrderService;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import java.util.Arrays;
+import java.util.List;
+
+import static java.util.stream.Collectors.toList;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 릴레이는 테스트 트랜잭션에 참여하므로 커밋하지 않은 outbox 도 보인다.
+ */
+@ExtendWith(SpringExtension.class)
+@SpringBootTest
+@Transactional
+class OrderOutboxRelayTest {
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @Autowired
+    OrderService orderService;
+
+    @Autowired
+    OrderOutboxRepository orderOutboxRepository;
+
+    private Long createOrder() {
+        Member member = new Member();
+        member.setName("회원1");
+        member.setAddress(new Address("서울", "가", "123"));
+        em.persist(member);
+        Book book = new Book();
+        book.setName("책1");
+        book.setPrice(1000);
+        book.setStockQuantity(10);
+        em.persist(book);
+        return orderService.order(member.getId(), book.getId(), 1);
+    }
+
+    private List<OrderOutbox> pending(Long orderId) {
+        return em.createQuery("select o from OrderOutbox o where o.orderId = :orderId", OrderOutbox.class)
+                .setParameter("orderId", orderId)
+                .getResultList();
+    }
+
+    @Test
+    public void 주문과_취소_이벤트_전송() throws Exception {
+        //given
+        Long orderId = createOrder();
+        orderService.cancalOrder(orderId);
+        em.flush();
+        InMemoryOrderEventPublisher publisher = new InMemoryOrderEventPublisher(100);
+        OrderOutboxRelay relay = new OrderOutboxRelay(orderOutboxRepository, publisher, transactionManager, true, 1);
+
+        //when
+        int relayed = relay.relay();
+
+        //then
+        List<OrderStatus> statuses = publisher.getEvents().stream()
+                .filter(e -> e.getOrderId().equals(orderId))
+                .map(OrderOutbox::getStatus)
+                .collect(toList());
+        assertEquals(Arrays.asList(OrderStatus.ORDER, OrderStatus.CANCEL), statuses, "주문, 취소 순서대로 보내야 한다");
+        assertTrue(relayed >= 2, "batch-size 보다 많으면 이어서 보내야 한다");
+        assertTrue(pending(orderId).isEmpty(), "보낸 이벤트는 outbox 에서 지워야 한다");
+        assertEquals(relayed, relay.stats().getPublished());
+    }
+
+    @Test
+    public void 전송_실패시_남겨둠() throws Exception {
+        //given
+        Long orderId = createOrder();
+        em.flush();
+        OrderOutboxRelay relay = new OrderOutboxRelay(orderOutboxRepository, events -> {
+            throw new IllegalStateException("전송 실패");
+        }, transactionManager, true, 100);
+
+        //when
+        relay.poll();
+
+        //then
+        assertEquals(1, pending(orderId).size(), "보내지 못한 이벤트는 다음 번에 다시 보내야 한다");
+        OutboxStats stats = relay.stats();
+        assertEquals(1, stats.getFailures());
+        assertEquals(0, stats.getPublished());
+        assertTrue(stats.getPending() >= 1);
+    }
+}
@@ -0,0 +1,59 @@
+package jpashop.repository;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import javax.persistence.EntityManager;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@ExtendWith(SpringExtension.class)
+@SpringBootTest
+class MemberNameFilterTest {
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @Test
+    public void 오탐률() throws Exception {
+        //given
+        MemberNameFilter filter = new MemberNameFilter(em, transactionManager, 10_000, 0.01);
+        filter.load();
+        for (int i = 0; i < 10_000; i++) {
+            filter.add("member-" + i);
+        }
+
+        //when
+        int falsePositives = 0;
+        for (int i = 0; i < 10_000; i++) {
+            if (filter.mightContain("other-" + i)) {
+                falsePositives++;
+            }
+        }
+
+        //then
+        for (int i = 0; i < 10_000; i++) {
+            assertTrue(filter.mightContain("member-" + i), "추가한 이름은 항상 true 여야 한다");
+        }
+        assertTrue(falsePositives < 200, "오탐률이 설정값(1%) 근처여야 한다: " + falsePositives);
+    }
+
+    @Test
+    public void 채우기_전에는_항상_true() throws Exception {
+        //given
+        MemberNameFilter filter = new MemberNameFilter(em, transactionManager, 1000, 0.01);
+
+        //when, then
+        assertTrue(filter.mightContain("없는 이름"), "DB 를 읽기 전에는 모르므로 true 여야 한다");
+        filter.load();
+        assertEquals(false, filter.mightContain("없는 이름"));
+    }
+}
@@ -0,0 +1,380 @@
+package jpashop.repository;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import jpashop.domain.*;
+import jpashop.domain.item.Book;
+import jpashop.repository.order.query.OrderItemParallelLoader;
+import jpashop.repository.order.query.OrderQueryDto;
+import jpashop.repository.order.query.OrderQueryRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import java.io.StringWriter;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+import static java.util.stream.Collectors.toList;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@ExtendWith(SpringExtension.class)
+@SpringBootTest
+@Transactional
+class OrderRepositoryTest {
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    OrderRepository orderRepository;
+
+    @Autowired
+    OrderQueryRepository orderQueryRepository;
+
+    @Autowired
+    ObjectMapper objectMapper;
+
+    @Autowired
+    MemberNameIndex memberNameIndex;
+
+    @Autowired
+    EntityManagerFactory emf;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    TransactionTemplate transactionTemplate;
+
+    private Member createMember() {
+        return createMember("회원1");
+    }
+
+    private Member createMember(String name) {
+        Member member = new Member();
+        member.setName(name);
+        member.setAddress(new Address("서울", "가", "123"));
+        em.persist(member);
+        return member;
+    }
+
+    private Book createBook(String name) {
+        Book book = new Book();
+        book.setName(name);
+        book.setPrice(1000);
+        book.setStockQuantity(100);
+        em.persist(book);
+        return book;
+    }
+
+    private Long createOrder(Member member, Book book, LocalDateTime orderDate) {
+        Delivery delivery = new Delivery();
+        delivery.setAddress(member.getAddress());
+        Order order = Order.createOrder(member, delivery, OrderItem.createOrderItem(book, 1000, 1));
+        order.setOrderDate(orderDate);
+        em.persist(order);
+        return order.getId();
+    }
+
+    @Test
+    public void keyset_페이징() throws Exception {
+        //given
+        Member member = createMember();
+        Book book = createBook("책1");
+
+        //같은 시각의 주문은 order_id 로 순서가 정해져야 한다.
+        LocalDateTime base = LocalDateTime.of(2100, 1, 1, 0, 0);
+        List<Long> expected = new ArrayList<>();
+        expected.add(createOrder(member, book, base));
+        expected.add(createOrder(member, book, base.plusSeconds(1)));
+        expected.add(createOrder(member, book, base.plusSeconds(1)));
+        expected.add(createOrder(member, book, base.plusSeconds(1)));
+        expected.add(createOrder(member, book, base.plusSeconds(2)));
+        em.flush();
+        em.clear();
+
+        //when
+        List<Long> actual = new ArrayList<>();
+        OrderCursor cursor = new OrderCursor(base.minusNanos(1000), Long.MAX_VALUE);
+        List<Order> page;
+        do {
+            page = orderRepository.findAllWithMemberDelivery(cursor, 2);
+            actual.addAll(page.stream().map(Order::getId).collect(toList()));
+            if (!page.isEmpty()) {
+                Order last = page.get(page.size() - 1);
+                cursor = OrderCursor.decode(new OrderCursor(last.getOrderDate(), last.getId()).encode());
+            }
+        } while (page.size() == 2);
+
+        //then
+        assertEquals(expected, actual, "모든 주문을 (order_date, order_id) 순서로 한 번씩 읽어야 한다");
+        assertTrue(page.size() < 2);
+    }
+
+    @Test
+    public void 컬렉션_fetch_join_페이징() throws Exception {
+        //given
+        Member member = createMember();
+        Book book1 = createBook("책1");
+        Book book2 = createBook("책2");
+        List<Long> orderIds = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            Delivery delivery = new Delivery();
+            delivery.setAddress(member.getAddress());
+            Order order = Order.createOrder(member, delivery,
+                    OrderItem.createOrderItem(book1, 1000, 1),
+                    OrderItem.createOrderItem(book2, 1000, 2));
+            em.persist(order);
+            orderIds.add(order.getId());
+        }
+        em.flush();
+        em.clear();
+
+        //when
+        List<Long> allIds = em.createQuery("select o.id from Order o order by o.id", Long.class).getResultList();
+        int offset = allIds.indexOf(orderIds.get(0));
+        List<Order> page = orderRepository.findAllWithItem(offset + 1, 2);
+
+        //then
+        assertEquals(orderIds.subList(1, 3), page.stream().map(Order::getId).collect(toList()),
+                "주문상품 수와 상관없이 주문 단위로 페이징되어야 한다");
+        page.forEach(o -> assertEquals(2, o.getOrderItems().size()));
+    }
+
+    @Test
+    public void 컬렉션_fetch_join_페이징_주문상품_없는_주문() throws Exception {
+        //given
+        Member member = createMember();
+        Book book = createBook("책1");
+        Long first = createOrder(member, book, LocalDateTime.now());
+        Delivery delivery = new Delivery();
+        delivery.setAddress(member.getAddress());
+        Order empty = Order.createOrder(member, delivery);
+        em.persist(empty);
+        Long last = createOrder(member, book, LocalDateTime.now());
+        em.flush();
+        em.clear();
+
+        //when
+        List<Long> allIds = em.createQuery("select o.id from Order o order by o.id", Long.class).getResultList();
+        List<Order> page = orderRepository.findAllWithItem(allIds.indexOf(first), 3);
+
+        //then
+        assertEquals(Arrays.asList(first, empty.getId(), last), ids(page),
+                "주문상품이 없는 주문도 페이지에 포함되어야 한다");
+        assertTrue(page.get(1).getOrderItems().isEmpty());
+    }
+
+    @Test
+    public void 주문금액_합계() throws Exception {
+        //given
+        Member member = createMember();
+        Book book1 = createBook("JPA1");
+        Book book2 = createBook("JPA2");
+        Delivery delivery = new Delivery();
+        delivery.setAddress(member.getAddress());
+        Order order = Order.createOrder(member, delivery,
+                OrderItem.createOrderItem(book1, 1000, 3), OrderItem.createOrderItem(book2, 2000, 2));
+        em.persist(order);
+        Long otherId = createOrder(member, book1, LocalDateTime.now());
+        em.flush();
+        em.clear();
+
+        //when
+        Map<Long, Integer> totalPrices = orderQueryRepository.findTotalPrices(Arrays.asList(order.getId(), otherId));
+        List<OrderQueryDto> orders = orderQueryRepository.findAllByDto_optimization();
+
+        //then
+        assertEquals(7000, (int) totalPrices.get(order.getId()), "주문상품 금액 * 수량의 합");
+        assertEquals(1000, (int) totalPrices.get(otherId));
+        OrderQueryDto dto = orders.stream().filter(o -> o.getOrderId().equals(order.getId())).findFirst().get();
+        assertEquals(7000, dto.getTotalPrice(), "조회 DTO 에도 같은 합계가 채워져야 한다");
+    }
+
+    @Test
+    public void JDBC_JSON_직접_쓰기() throws Exception {
+        //given
+        Member member = createMember();
+        Book book1 = createBook("JPA1");
+        Book book2 = createBook("JPA2");
+        Delivery delivery = new Delivery();
+        delivery.setAddress(member.getAddress());
+        em.persist(Order.createOrder(member, delivery,
+                OrderItem.createOrderItem(book1, 1000, 3), OrderItem.createOrderItem(book2, 2000, 2)));
+        createOrder(member, book2, LocalDateTime.now());
+        em.flush();
+        em.clear();
+
+        //when
+        StringWriter json = new StringWriter();
+        long count;
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(json)) {
+            count = orderQueryRepository.writeAllByJdbc(generator, 100);
+        }
+
+        //then
+        List<OrderQueryDto> orders = orderQueryRepository.findAllByDto_optimization();
+        assertEquals(orders.size(), count);
+        assertEquals(sortByOrderId(objectMapper.readTree(objectMapper.writeValueAsString(orders))), sortByOrderId(objectMapper.readTree(json.toString())),
+                "DTO 를 거친 v5 응답과 같은 JSON 이어야 한다");
+    }
+
+    /**
+     * v5 조회는 order by 가 없으므로 주문은 orderId, 주문상품은 내용 순서로 맞춰서 비교한다.
+     */
+    private List<JsonNode> sortByOrderId(JsonNode orders) {
+        List<JsonNode> sorted = new ArrayList<>();
+        orders.forEach(order -> {
+            List<JsonNode> orderItems = new ArrayList<>();
+            order.get("orderItems").forEach(orderItems::add);
+            orderItems.sort(Comparator.comparing(JsonNode::toString));
+            ((ObjectNode) order).set("orderItems", objectMapper.valueToTree(orderItems));
+            sorted.add(order);
+        });
+        sorted.sort(Comparator.comparingLong(order -> order.get("orderId").asLong()));
+        return sorted;
+    }
+
+    /**
+     * 병렬 조회는 chunk 마다 다른 커넥션으로 읽으므로 테스트 트랜잭션 없이 커밋해 두고 비교한다.
+     */
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void 병렬_조회는_한번에_조회와_같음() throws Exception {
+        //given
+        Member member = transactionTemplate.execute(status -> createMember("병렬" + System.nanoTime()));
+        List<Long> orderIds = transactionTemplate.execute(status -> {
+            Book book1 = createBook("JPA1");
+            Book book2 = createBook("JPA2");
+            List<Long> ids = new ArrayList<>();
+            for (int i = 0; i < 5; i++) {
+                Delivery delivery = new Delivery();
+                delivery.setAddress(member.getAddress());
+                Order order = i % 2 == 0
+                        ? Order.createOrder(member, delivery, OrderItem.createOrderItem(book1, 1000, 1), OrderItem.createOrderItem(book2, 2000, i + 1))
+                        : Order.createOrder(member, delivery, OrderItem.createOrderItem(book2, 2000, 1));
+                em.persist(order);
+                ids.add(order.getId());
+            }
+            return ids;
+        });
+        //주문 5건이 chunk 3개(2, 2, 1건)로 나뉜다.
+        OrderItemParallelLoader loader = new OrderItemParallelLoader(emf, 2, 2);
+        OrderQueryRepository repository = new OrderQueryRepository(em, loader, jdbcTemplate);
+
+        try {
+            //when
+            List<OrderQueryDto> parallel = repository.findAllByDto_parallel();
+            List<OrderQueryDto> optimization = repository.findAllByDto_optimization();
+
+            //then
+            assertTrue(parallel.stream().map(OrderQueryDto::getOrderId).collect(toList()).containsAll(orderIds));
+            assertEquals(optimization.stream().map(OrderQueryDto::getOrderId).collect(toList()),
+                    parallel.stream().map(OrderQueryDto::getOrderId).collect(toList()), "주문 순서가 같아야 한다");
+            assertEquals(sortByOrderId(objectMapper.readTree(objectMapper.writeValueAsString(optimization))),
+                    sortByOrderId(objectMapper.readTree(objectMapper.writeValueAsString(parallel))),
+                    "chunk 가 나뉘어도 주문마다 주문상품이 모두 채워져야 한다");
+        } finally {
+            loader.shutdown();
+            deleteAll(member, orderIds);
+        }
+    }
+
+    private void deleteAll(Member member, List<Long> orderIds) {
+        List<Long> itemIds = jdbcTemplate.queryForList(
+                "select distinct oi.item_id from order_item oi join orders o on o.order_id = oi.order_id where o.member_id = ?",
+                Long.class, member.getId());
+        List<Long> deliveryIds = jdbcTemplate.queryForList(
+                "select delivery_id from orders where member_id = ?", Long.class, member.getId());
+        orderIds.forEach(id -> jdbcTemplate.update("delete from order_item where order_id = ?", id));
+        jdbcTemplate.update("delete from orders where member_id = ?", member.getId());
+        deliveryIds.forEach(id -> jdbcTemplate.update("delete from delivery where delivery_id = ?", id));
+        itemIds.forEach(id -> jdbcTemplate.update("delete from item where item_id = ?", id));
+        jdbcTemplate.update("delete from member where member_id = ?", member.getId());
+    }
+
+    @Test
+    public void 검색조건_조합별_템플릿() throws Exception {
+        //given
+        Member member = createMember();
+        Member other = createMember("회원2");
+        Book book = createBook("JPA1");
+        createOrder(member, book, LocalDateTime.now());
+        createOrder(other, book, LocalDateTime.now());
+        Long canceledId = createOrder(other, book, LocalDateTime.now());
+        orderRepository.findOne(canceledId).cancel();
+        em.flush();
+        em.clear();
+        //em 으로 넣은 회원은 MemberService 를 거치지 않으므로 색인을 다시 만든다.
+        memberNameIndex.rebuild();
+
+        for (OrderStatus status : Arrays.asList(null, OrderStatus.ORDER, OrderStatus.CANCEL)) {
+            for (String name : Arrays.asList(null, "", "회원2", "없는회원")) {
+                OrderSearch orderSearch = new OrderSearch();
+                orderSearch.setOrderStatus(status);
+                orderSearch.setMemberName(name);
+
+                //when
+                List<Long> found = orderRepository.findAllBySearch(orderSearch).stream().map(Order::getId).sorted().collect(toList());
+
+                //then
+                List<Long> expected = orderRepository.findAllByCriteria(orderSearch).stream().map(Order::getId).sorted().collect(toList());
+                assertEquals(expected, found, "status=" + status + ", name=" + name + " 검색 결과가 Criteria 와 같아야 한다");
+            }
+        }
+    }
+
+    @Test
+    public void 회원이름_색인_검색() throws Exception {
+        //given
+        Member member = createMember("바사아자차");
+        Book book = createBook("JPA1");
+        Long orderId = createOrder(member, book, LocalDateTime.now());
+        em.flush();
+        em.clear();
+        memberNameIndex.rebuild();
+        //이름을 바꾸면 바뀌기 전 이름도 색인에 남는다.
+        memberNameIndex.add(member.getId(), "가나다라마");
+
+        //when
+        OrderSearch byNewName = new OrderSearch();
+        byNewName.setMemberName("사아자");
+        OrderSearch byOldName = new OrderSearch();
+        byOldName.setMemberName("나다라");
+        OrderSearch shortName = new OrderSearch();
+        shortName.setMemberName("아자");
+        OrderSearch wildcard = new OrderSearch();
+        wildcard.setMemberName("사_자");
+
+        //then
+        assertTrue(memberNameIndex.findCandidates("사아자").contains(member.getId()));
+        assertTrue(memberNameIndex.findCandidates("나다라").contains(member.getId()), "바뀌기 전 이름은 후보로만 남는다");
+        assertEquals(Arrays.asList(orderId), ids(orderRepository.findAllBySearch(byNewName)));
+        assertEquals(new ArrayList<>(), ids(orderRepository.findAllBySearch(byOldName)), "like 로 한 번 더 걸러서 예전 이름으로는 찾지 못한다");
+        assertEquals(Arrays.asList(orderId), ids(orderRepository.findAllBySearch(shortName)), "3글자 미만은 like 로 찾는다");
+        assertNull(memberNameIndex.findCandidates("사_자"));
+        assertEquals(Arrays.asList(orderId), ids(orderRepository.findAllBySearch(wildcard)), "와일드카드가 있으면 like 로 찾는다");
+        assertTrue(memberNameIndex.findCandidates("없는이름").isEmpty());
+    }
+
+    private List<Long> ids(List<Order> orders) {
+        return orders.stream().map(Order::getId).collect(toList());
+    }
+}
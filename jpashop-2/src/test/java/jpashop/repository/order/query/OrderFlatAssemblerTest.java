@@ -0,0 +1,63 @@
+package jpashop.repository.order.query;
+
+import jpashop.domain.Address;
+import jpashop.domain.OrderStatus;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static java.util.stream.Collectors.toList;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class OrderFlatAssemblerTest {
+
+    private OrderFlatDto flat(long orderId, String itemName) {
+        return new OrderFlatDto(orderId, "회원" + orderId, LocalDateTime.now(), OrderStatus.ORDER,
+                new Address("서울", "가", "123"), itemName, 1000, 1);
+    }
+
+    @Test
+    public void 쿼리_순서대로_조립() throws Exception {
+        //given
+        List<OrderFlatDto> flats = Arrays.asList(
+                flat(30, "A"), flat(10, "B"), flat(30, "C"), flat(20, "D"), flat(10, "E"));
+
+        //when
+        List<OrderQueryDto> orders = OrderFlatAssembler.assemble(flats);
+
+        //then
+        assertEquals(Arrays.asList(30L, 10L, 20L), orders.stream().map(OrderQueryDto::getOrderId).collect(toList()),
+                "주문은 쿼리에서 처음 나온 순서대로 한 번씩만 만들어져야 한다");
+        assertEquals(Arrays.asList("A", "C"), itemNames(orders.get(0)));
+        assertEquals(Arrays.asList("B", "E"), itemNames(orders.get(1)));
+        assertEquals(Arrays.asList("D"), itemNames(orders.get(2)));
+        assertEquals(2000, orders.get(0).getTotalPrice(), "주문 금액은 주문상품 금액 * 수량의 합");
+    }
+
+    @Test
+    public void 해시맵_확장() throws Exception {
+        //given
+        LongIntHashMap map = new LongIntHashMap(2);
+
+        //when
+        for (int i = 0; i < 10_000; i++) {
+            map.put(i * 31L - 5_000, i);
+        }
+
+        //then
+        assertEquals(10_000, map.size());
+        for (int i = 0; i < 10_000; i++) {
+            assertEquals(i, map.get(i * 31L - 5_000));
+        }
+        assertEquals(-1, map.get(Long.MAX_VALUE));
+    }
+
+    private List<String> itemNames(OrderQueryDto order) {
+        List<String> names = new ArrayList<>();
+        order.getOrderItems().forEach(i -> names.add(i.getItemName()));
+        return names;
+    }
+}
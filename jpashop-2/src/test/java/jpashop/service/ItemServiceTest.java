@@ -0,0 +1,125 @@
+package jpashop.service;
+
+import jpashop.domain.Address;
+import jpashop.domain.Member;
+import jpashop.domain.item.Book;
+import jpashop.sql.SqlStatementCounter;
+import jpashop.sql.SqlStatistics;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@ExtendWith(SpringExtension.class)
+@SpringBootTest
+@Transactional
+class ItemServiceTest {
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    ItemService itemService;
+
+    @Autowired
+    OrderService orderService;
+
+    private Book createBook() {
+        Book book = new Book();
+        book.setName("책1");
+        book.setPrice(1000);
+        book.setStockQuantity(10);
+        book.setAuthor("저자1");
+        book.setIsbn("isbn1");
+        em.persist(book);
+        em.flush();
+        em.clear();
+        return book;
+    }
+
+    private Book form(Book book, Long version) {
+        Book form = new Book();
+        form.setId(book.getId());
+        form.setVersion(version);
+        form.setName("책2");
+        form.setPrice(2000);
+        form.setStockQuantity(20);
+        form.setAuthor("저자2");
+        form.setIsbn("isbn2");
+        return form;
+    }
+
+    @Test
+    public void 읽지_않고_수정() throws Exception {
+        //given
+        Book book = createBook();
+
+        //when
+        int[] updated = new int[1];
+        SqlStatistics statistics = SqlStatementCounter.count(() -> updated[0] = itemService.updateBook(form(book, book.getVersion())));
+
+        //then
+        assertEquals(1, updated[0]);
+        assertEquals(0, statistics.getCountStartingWith("select"), "select 없이 수정해야 한다");
+        assertEquals(2, statistics.getStatementCount(), "상품과 주문 요약 update 한 번씩이어야 한다");
+        Book found = em.find(Book.class, book.getId());
+        assertEquals("책2", found.getName());
+        assertEquals(20, found.getStockQuantity());
+        assertEquals("isbn2", found.getIsbn());
+        assertEquals(book.getVersion() + 1, (long) found.getVersion(), "version 이 올라가야 한다");
+    }
+
+    @Test
+    public void 오래된_version_은_수정하지_않음() throws Exception {
+        //given
+        Book book = createBook();
+        itemService.updateBook(form(book, book.getVersion()));
+        em.clear();
+
+        //when
+        int updated = itemService.updateBook(form(book, book.getVersion()));
+
+        //then
+        assertEquals(0, updated, "화면을 연 뒤 바뀐 상품은 덮어쓰지 않아야 한다");
+        assertEquals(book.getVersion() + 1, (long) em.find(Book.class, book.getId()).getVersion());
+    }
+
+    private List<String> summaryItemNames(Long orderId) {
+        return em.createQuery("select s.itemName from OrderSummary s where s.orderId = :orderId", String.class)
+                .setParameter("orderId", orderId)
+                .getResultList();
+    }
+
+    @Test
+    public void 상품_이름_변경은_주문_요약에도_반영() throws Exception {
+        //given
+        Book book = createBook();
+        Member member = new Member();
+        member.setName("회원1");
+        member.setAddress(new Address("서울", "가", "123"));
+        em.persist(member);
+        Long orderId = orderService.order(member.getId(), book.getId(), 1);
+
+        //when
+        itemService.updateItem(book.getId(), "책3", 1000, 10);
+
+        //then
+        assertEquals(Collections.singletonList("책3"), summaryItemNames(orderId), "주문 요약의 상품 이름도 바뀌어야 한다");
+
+        //when
+        em.flush();
+        em.clear();
+        itemService.updateBook(form(book, em.find(Book.class, book.getId()).getVersion()));
+
+        //then
+        assertEquals(Collections.singletonList("책2"), summaryItemNames(orderId), "version 으로 수정해도 주문 요약에 반영되어야 한다");
+    }
+}
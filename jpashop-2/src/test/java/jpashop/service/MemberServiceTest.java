@@ -1,13 +1,19 @@
 package jpashop.service;
 
 import jpashop.domain.Member;
+import jpashop.repository.MemberNameFilter;
+import jpashop.repository.MemberNameIndex;
 import jpashop.repository.MemberRepositoryOld;
+import jpashop.sql.SqlStatementCounter;
+import jpashop.sql.SqlStatistics;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 
+import javax.persistence.EntityManager;
 import javax.transaction.Transactional;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -17,12 +23,24 @@ import static org.junit.jupiter.api.Assertions.*;
 @Transactional
 class MemberServiceTest {
 
+    @Autowired
+    EntityManager em;
+
     @Autowired
     MemberService memberService;
 
     @Autowired
     MemberRepositoryOld memberRepository;
 
+    @Autowired
+    MemberNameFilter memberNameFilter;
+
+    @Autowired
+    MemberNameIndex memberNameIndex;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
     @Test
     public void 회원가입() throws Exception {
         //given
@@ -52,4 +70,96 @@ class MemberServiceTest {
         assertThrows(IllegalStateException.class,
                 () -> {memberService.join(member2);});
     }
-}
\ No newline at end of file
+
+    /**
+     * bloom filter, 이름 색인은 커밋된 뒤에 추가되므로 테스트 트랜잭션 없이 커밋한다.
+     */
+    @Test
+    @Transactional(Transactional.TxType.NOT_SUPPORTED)
+    public void 새_이름은_중복_조회_안함() throws Exception {
+        //given
+        Member member = new Member();
+        member.setName("처음 보는 이름" + System.nanoTime());
+        assertFalse(memberNameFilter.mightContain(member.getName()));
+
+        try {
+            //when
+            SqlStatistics statistics = SqlStatementCounter.count(() -> memberService.join(member));
+
+            //then
+            assertEquals(0, statistics.getCountStartingWith("select"), "bloom filter 에 없는 이름은 DB 를 읽지 않아야 한다");
+            assertTrue(memberNameFilter.mightContain(member.getName()), "가입한 이름은 bloom filter 에 추가되어야 한다");
+        } finally {
+            jdbcTemplate.update("delete from member where member_id = ?", member.getId());
+        }
+    }
+
+    @Test
+    @Transactional(Transactional.TxType.NOT_SUPPORTED)
+    public void 이름_변경은_커밋_후_색인에_추가() throws Exception {
+        //given
+        String suffix = String.valueOf(System.nanoTime());
+        Member member = new Member();
+        member.setName("가나다" + suffix);
+        Long memberId = memberService.join(member);
+
+        try {
+            //when
+            memberService.update(memberId, "라마바" + suffix);
+
+            //then
+            assertTrue(memberNameFilter.mightContain("라마바" + suffix));
+            assertTrue(memberNameIndex.findCandidates("라마바" + suffix).contains(memberId), "바뀐 이름으로 후보를 찾아야 한다");
+        } finally {
+            jdbcTemplate.update("delete from member where member_id = ?", memberId);
+        }
+    }
+
+    @Test
+    public void 롤백된_가입은_추가_안함() throws Exception {
+        //given
+        Member member = new Member();
+        member.setName("롤백될 이름" + System.nanoTime());
+
+        //when
+        memberService.join(member);
+
+        //then
+        assertFalse(memberNameFilter.mightContain(member.getName()), "커밋 전에는 bloom filter 에 추가되지 않는다");
+    }
+
+    @Test
+    public void 이름_변경은_이름만_update() throws Exception {
+        //given
+        Member member = new Member();
+        member.setName("kim");
+        Long memberId = memberService.join(member);
+
+        //when
+        SqlStatistics statistics = SqlStatementCounter.count(() -> {
+            memberService.update(memberId, "lee");
+            em.flush();
+        });
+
+        //then
+        assertEquals(1, statistics.getCountStartingWith("update member set name=? where"), "바뀐 컬럼만 update 해야 한다");
+    }
+
+    @Test
+    public void 중복_이름으로_변경_예외() throws Exception {
+        //given
+        Member member1 = new Member();
+        member1.setName("kim");
+        Member member2 = new Member();
+        member2.setName("lee");
+        memberService.join(member1);
+        Long memberId = memberService.join(member2);
+
+        //when
+        memberService.update(memberId, "lee");
+
+        //then
+        assertThrows(IllegalStateException.class, () -> memberService.update(memberId, "kim"),
+                "다른 회원이 쓰는 이름으로는 바꿀 수 없어야 한다");
+    }
+}
@@ -0,0 +1,95 @@
+package jpashop.service;
+
+import jpashop.exception.ItemConflictException;
+import org.junit.jupiter.api.Test;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class OptimisticRetryExecutorTest {
+
+    private static ObjectOptimisticLockingFailureException conflict() {
+        return new ObjectOptimisticLockingFailureException("Item", 1L);
+    }
+
+    @Test
+    public void 충돌시_재시도() throws Exception {
+        //given
+        OptimisticRetryExecutor executor = new OptimisticRetryExecutor(true, 3, 1, 5);
+        AtomicInteger calls = new AtomicInteger();
+
+        //when
+        String result = executor.execute(1L, () -> {
+            if (calls.incrementAndGet() < 3) {
+                throw conflict();
+            }
+            return "ok";
+        });
+
+        //then
+        assertEquals("ok", result);
+        assertEquals(3, calls.get());
+        ItemContention contention = executor.stats().get(0);
+        assertEquals(2, contention.getConflicts());
+        assertEquals(2, contention.getRetries());
+        assertEquals(0, contention.getGiveUps());
+    }
+
+    @Test
+    public void 재시도_초과() throws Exception {
+        //given
+        OptimisticRetryExecutor executor = new OptimisticRetryExecutor(true, 2, 1, 5);
+        AtomicInteger calls = new AtomicInteger();
+
+        //when
+        assertThrows(ItemConflictException.class, () -> executor.run(1L, () -> {
+            calls.incrementAndGet();
+            throw conflict();
+        }));
+
+        //then
+        assertEquals(2, calls.get(), "max-attempts 만큼만 실행해야 한다");
+        assertEquals(1, executor.stats().get(0).getGiveUps());
+    }
+
+    @Test
+    public void 꺼져있으면_재시도_안함() throws Exception {
+        //given
+        OptimisticRetryExecutor executor = new OptimisticRetryExecutor(false, 3, 1, 5);
+        AtomicInteger calls = new AtomicInteger();
+
+        //when
+        assertThrows(ItemConflictException.class, () -> executor.run(7L, () -> {
+            calls.incrementAndGet();
+            throw conflict();
+        }));
+
+        //then
+        assertEquals(1, calls.get());
+        assertEquals(1, executor.stats().get(0).getConflicts(), "충돌 횟수는 꺼져 있어도 센다");
+        assertEquals(7L, (long) executor.stats().get(0).getItemId());
+    }
+
+    @Test
+    public void 충돌한_상품으로_집계() throws Exception {
+        //given
+        OptimisticRetryExecutor executor = new OptimisticRetryExecutor(true, 2, 1, 5);
+        AtomicInteger calls = new AtomicInteger();
+
+        //when
+        ItemConflictException e = assertThrows(ItemConflictException.class, () -> executor.run(() -> {
+            calls.incrementAndGet();
+            throw new ObjectOptimisticLockingFailureException("Item", 9L);
+        }));
+
+        //then
+        assertEquals(2, calls.get());
+        assertTrue(e.getCause() instanceof ObjectOptimisticLockingFailureException, "원래 충돌을 cause 로 남긴다");
+        assertEquals(9L, (long) executor.stats().get(0).getItemId(), "상품 id 를 모르면 충돌한 엔티티 id 로 센다");
+        assertEquals(1, executor.stats().get(0).getGiveUps());
+    }
+}
@@ -0,0 +1,197 @@
+package jpashop.service;
+
+import jpashop.domain.Address;
+import jpashop.domain.Member;
+import jpashop.domain.item.Book;
+import jpashop.exception.NotEnoughStockException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * 비동기 주문 묶음(orderAll) 을 실제 DB 로 커밋/롤백해 본다. 테스트 트랜잭션 없이 데이터를 커밋해 두고 확인한다.
+ */
+@ExtendWith(SpringExtension.class)
+@SpringBootTest
+class OrderAllTest {
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    OrderService orderService;
+
+    @Autowired
+    StockLedger stockLedger;
+
+    @Autowired
+    TransactionTemplate transactionTemplate;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    private Member member;
+    private Book book1;
+    private Book book2;
+    private Book ledgerBook;
+    private final AtomicLong ticketSequence = new AtomicLong();
+
+    @BeforeEach
+    void setUp() {
+        member = transactionTemplate.execute(status -> {
+            Member member = new Member();
+            member.setName("묶음" + System.nanoTime());
+            member.setAddress(new Address("서울", "가", "123"));
+            em.persist(member);
+            return member;
+        });
+        book1 = createBook("책1");
+        book2 = createBook("책2");
+        ledgerBook = createBook("장부책");
+        stockLedger.cover(ledgerBook.getId());
+    }
+
+    @AfterEach
+    void tearDown() {
+        List<Long> itemIds = Arrays.asList(book1.getId(), book2.getId(), ledgerBook.getId());
+        List<Long> deliveryIds = jdbcTemplate.queryForList(
+                "select delivery_id from orders where member_id = ?", Long.class, member.getId());
+        jdbcTemplate.update("delete from stock_journal where item_id = ?", ledgerBook.getId());
+        jdbcTemplate.update("delete from order_summary where member_id = ?", member.getId());
+        jdbcTemplate.update("delete from order_outbox where order_id in (select order_id from orders where member_id = ?)", member.getId());
+        jdbcTemplate.update("delete from order_item where order_id in (select order_id from orders where member_id = ?)", member.getId());
+        jdbcTemplate.update("delete from orders where member_id = ?", member.getId());
+        deliveryIds.forEach(id -> jdbcTemplate.update("delete from delivery where delivery_id = ?", id));
+        jdbcTemplate.update("delete from member where member_id = ?", member.getId());
+        itemIds.forEach(id -> jdbcTemplate.update("delete from item where item_id = ?", id));
+    }
+
+    private Book createBook(String name) {
+        return transactionTemplate.execute(status -> {
+            Book book = new Book();
+            book.setName(name);
+            book.setPrice(1000);
+            book.setStockQuantity(100);
+            em.persist(book);
+            return book;
+        });
+    }
+
+    private OrderTicket ticket(Object... itemIdAndCounts) {
+        TreeMap<Long, Integer> itemCounts = new TreeMap<>();
+        for (int i = 0; i < itemIdAndCounts.length; i += 2) {
+            itemCounts.put((Long) itemIdAndCounts[i], (Integer) itemIdAndCounts[i + 1]);
+        }
+        return new OrderTicket(ticketSequence.incrementAndGet(), member.getId(), itemCounts);
+    }
+
+    private long count(String sql) {
+        return jdbcTemplate.queryForObject(sql, Long.class, member.getId());
+    }
+
+    private int stockQuantity(Book book) {
+        return jdbcTemplate.queryForObject("select stock_quantity from item where item_id = ?", Integer.class, book.getId());
+    }
+
+    private long journalSum() {
+        return jdbcTemplate.queryForObject(
+                "select coalesce(sum(delta), 0) from stock_journal where item_id = ?", Long.class, ledgerBook.getId());
+    }
+
+    @Test
+    public void 묶음_커밋() throws Exception {
+        //when
+        List<Long> orderIds = orderService.orderAll(Arrays.asList(
+                ticket(book1.getId(), 1, ledgerBook.getId(), 2),
+                ticket(ledgerBook.getId(), 3),
+                ticket(book2.getId(), 4, book1.getId(), 5)));
+
+        //then
+        assertEquals(3, orderIds.size());
+        assertEquals(3, count("select count(*) from orders where member_id = ?"));
+        assertEquals(5, count("select count(*) from order_summary where member_id = ?"), "커밋 때 flush 해도 주문 요약이 모두 저장되어야 한다");
+        assertEquals(3, count("select count(*) from order_outbox where order_id in (select order_id from orders where member_id = ?)"),
+                "커밋 때 flush 해도 outbox 가 모두 저장되어야 한다");
+        assertEquals(-5, journalSum(), "장부 상품은 변경분만 남긴다");
+        assertEquals(94, stockQuantity(book1));
+        assertEquals(96, stockQuantity(book2));
+        assertEquals(100, stockQuantity(ledgerBook));
+        assertEquals(95, stockLedger.available(ledgerBook.getId()));
+    }
+
+    @Test
+    public void 한_건이_실패하면_묶음_전체_롤백() throws Exception {
+        //given
+        long available = stockLedger.available(ledgerBook.getId());
+
+        //when
+        assertThrows(NotEnoughStockException.class, () -> orderService.orderAll(Arrays.asList(
+                ticket(book1.getId(), 1, ledgerBook.getId(), 2),
+                ticket(ledgerBook.getId(), 3),
+                ticket(book2.getId(), 1000))));
+
+        //then
+        assertEquals(0, count("select count(*) from orders where member_id = ?"));
+        assertEquals(0, count("select count(*) from order_summary where member_id = ?"));
+        assertEquals(0, journalSum());
+        assertEquals(100, stockQuantity(book1), "앞 주문의 재고 변경도 롤백되어야 한다");
+        assertEquals(available, stockLedger.available(ledgerBook.getId()), "롤백되면 장부에서 예약한 재고를 돌려놓아야 한다");
+    }
+
+    @Test
+    public void 상품_순서가_다른_묶음끼리_교착_없음() throws Exception {
+        //given
+        int rounds = 20;
+        CyclicBarrier barrier = new CyclicBarrier(2);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+
+        //when
+        List<Future<?>> futures = new ArrayList<>();
+        try {
+            futures.add(executor.submit(() -> placeRounds(barrier, rounds, book1, book2)));
+            futures.add(executor.submit(() -> placeRounds(barrier, rounds, book2, book1)));
+            for (Future<?> future : futures) {
+                future.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        //then
+        assertEquals(rounds * 4, count("select count(*) from orders where member_id = ?"));
+        assertEquals(100 - rounds * 3, stockQuantity(book1));
+        assertEquals(100 - rounds * 3, stockQuantity(book2));
+    }
+
+    /**
+     * 묶음 안에서 first 를 먼저 주문하는 티켓을 앞에 둔다. 상품은 묶음 전체에서 id 순서로 잠가야 한다.
+     */
+    private Void placeRounds(CyclicBarrier barrier, int rounds, Book first, Book second) throws Exception {
+        for (int i = 0; i < rounds; i++) {
+            barrier.await(10, TimeUnit.SECONDS);
+            orderService.orderAll(Arrays.asList(ticket(first.getId(), 1), ticket(second.getId(), 1, first.getId(), 1)));
+        }
+        return null;
+    }
+}
@@ -0,0 +1,124 @@
+package jpashop.service;
+
+import jpashop.domain.Address;
+import jpashop.domain.DeliveryStatus;
+import jpashop.domain.Member;
+import jpashop.domain.Order;
+import jpashop.domain.OrderStatus;
+import jpashop.domain.OrderSummary;
+import jpashop.domain.item.Book;
+import jpashop.domain.item.Item;
+import jpashop.sql.SqlStatementCounter;
+import jpashop.sql.SqlStatistics;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@ExtendWith(SpringExtension.class)
+@SpringBootTest
+@Transactional
+class OrderCancelServiceTest {
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    OrderService orderService;
+
+    @Autowired
+    OrderCancelService orderCancelService;
+
+    private Book createBook(String name, int price, int stockQuantity) {
+        Book book = new Book();
+        book.setName(name);
+        book.setPrice(price);
+        book.setStockQuantity(stockQuantity);
+        em.persist(book);
+        return book;
+    }
+
+    private Member createMember(String name) {
+        Member member = new Member();
+        member.setName(name);
+        member.setAddress(new Address("서울", "가", "123"));
+        em.persist(member);
+        return member;
+    }
+
+    @Test
+    public void 일괄취소() throws Exception {
+        //given
+        Member member = createMember("회원1");
+        Book book1 = createBook("책1", 1000, 10);
+        Book book2 = createBook("책2", 2000, 10);
+        List<Long> orderIds = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            orderIds.add(orderService.order(member.getId(), book1.getId(), 1));
+            orderIds.add(orderService.order(member.getId(), book2.getId(), 2));
+        }
+        Long deliveredId = orderService.order(member.getId(), book1.getId(), 1);
+        em.find(Order.class, deliveredId).getDelivery().setStatus(DeliveryStatus.COMP);
+        orderIds.add(deliveredId);
+        em.flush();
+        em.clear();
+
+        //when
+        OrderCancelResult[] result = new OrderCancelResult[1];
+        SqlStatistics statistics = SqlStatementCounter.count(() -> result[0] = orderCancelService.cancelOrders(orderIds));
+        em.clear();
+
+        //then
+        assertEquals(7, result[0].getRequested());
+        assertEquals(6, result[0].getCancelled());
+        assertEquals(1, result[0].getRefused(), "배송 완료된 주문은 취소하지 않아야 한다");
+        assertEquals(1, statistics.getCountStartingWith("update item"), "상품 수와 상관없이 재고 update 는 한 번이어야 한다");
+        assertEquals(1, statistics.getCountStartingWith("insert into order_outbox"), "outbox 는 batch insert 한 번이어야 한다");
+        assertEquals(1, statistics.getMaxRepeat(), "주문, 상품마다 반복되는 SQL 이 없어야 한다");
+        assertEquals(9, em.find(Item.class, book1.getId()).getStockQuantity(), "배송 완료 주문의 재고는 되돌리지 않는다");
+        assertEquals(10, em.find(Item.class, book2.getId()).getStockQuantity());
+        assertEquals(OrderStatus.ORDER, em.find(Order.class, deliveredId).getStatus());
+        assertEquals(OrderStatus.CANCEL, em.find(Order.class, orderIds.get(0)).getStatus());
+        List<OrderSummary> summaries = em.createQuery("select s from OrderSummary s where s.orderId in :orderIds", OrderSummary.class)
+                .setParameter("orderIds", orderIds.subList(0, 6))
+                .getResultList();
+        summaries.forEach(s -> assertEquals(OrderStatus.CANCEL, s.getOrderStatus(), "주문 요약에도 반영되어야 한다"));
+        assertEquals(6L, em.createQuery("select count(o) from OrderOutbox o where o.orderId in :orderIds and o.status = :status", Long.class)
+                .setParameter("orderIds", orderIds)
+                .setParameter("status", OrderStatus.CANCEL)
+                .getSingleResult(), "취소한 주문마다 outbox 이벤트가 쌓여야 한다");
+    }
+
+    @Test
+    public void 상품_리콜() throws Exception {
+        //given
+        Member member = createMember("회원1");
+        Book recalled = createBook("책1", 1000, 10);
+        Book other = createBook("책2", 2000, 10);
+        Long cancelledId = orderService.order(member.getId(), recalled.getId(), 2);
+        orderService.cancalOrder(cancelledId);
+        Long orderId = orderService.order(member.getId(), recalled.getId(), 3);
+        Long otherId = orderService.order(member.getId(), other.getId(), 1);
+        em.flush();
+        em.clear();
+
+        //when
+        OrderCancelResult result = orderCancelService.cancelOrdersByItem(recalled.getId());
+        em.clear();
+
+        //then
+        assertEquals(1, result.getCancelled(), "이미 취소된 주문은 다시 취소하지 않아야 한다");
+        assertEquals(OrderStatus.CANCEL, em.find(Order.class, orderId).getStatus());
+        assertEquals(OrderStatus.ORDER, em.find(Order.class, otherId).getStatus());
+        assertEquals(10, em.find(Item.class, recalled.getId()).getStockQuantity());
+        assertEquals(9, em.find(Item.class, other.getId()).getStockQuantity());
+    }
+}
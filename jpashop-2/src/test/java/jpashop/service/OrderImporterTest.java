@@ -0,0 +1,165 @@
+package jpashop.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jpashop.domain.Address;
+import jpashop.domain.Member;
+import jpashop.domain.item.Book;
+import jpashop.domain.item.Item;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 청크마다 커밋되는지 보는 테스트는 클래스 전체 트랜잭션에 묶이지 않도록 메서드마다 @Transactional 을 붙인다.
+ */
+@ExtendWith(SpringExtension.class)
+@SpringBootTest
+class OrderImporterTest {
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    OrderService orderService;
+
+    @Autowired
+    ObjectMapper objectMapper;
+
+    @Autowired
+    TransactionTemplate transactionTemplate;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    private Book createBook(String name, int price, int stockQuantity) {
+        Book book = new Book();
+        book.setName(name);
+        book.setPrice(price);
+        book.setStockQuantity(stockQuantity);
+        em.persist(book);
+        return book;
+    }
+
+    private Member createMember(String name) {
+        Member member = new Member();
+        member.setName(name);
+        member.setAddress(new Address("서울", "가", "123"));
+        em.persist(member);
+        return member;
+    }
+
+    private long countOrders(Member member) {
+        return em.createQuery("select count(o) from Order o where o.member.id = :memberId", Long.class)
+                .setParameter("memberId", member.getId())
+                .getSingleResult();
+    }
+
+    @Test
+    @Transactional
+    public void CSV_청크_가져오기() throws Exception {
+        //given
+        Member member = createMember("회원1");
+        Book book1 = createBook("책1", 1000, 10);
+        Book book2 = createBook("책2", 2000, 10);
+        StringBuilder csv = new StringBuilder("memberId,itemId,count\n");
+        for (int i = 0; i < 5; i++) {
+            csv.append(member.getId()).append(',').append(i % 2 == 0 ? book1.getId() : book2.getId()).append(",1\n");
+        }
+        OrderImporter importer = new OrderImporter(orderService, objectMapper, 2);
+        List<OrderImportProgress> progress = new ArrayList<>();
+
+        //when
+        long imported = importer.importCsv(new StringReader(csv.toString()), progress::add);
+
+        //then
+        assertEquals(5, imported, "헤더를 빼고 줄마다 주문이 하나씩 저장되어야 한다");
+        assertEquals(3, progress.size(), "청크(2, 2, 1건)마다 진행 상황을 알려야 한다");
+        assertEquals(1, progress.get(2).getChunkOrders());
+        assertEquals(5, progress.get(2).getTotalOrders());
+        assertFalse(em.contains(book1), "청크마다 영속성 컨텍스트를 비워야 한다");
+        assertEquals(5, countOrders(member));
+        assertEquals(7, em.find(Item.class, book1.getId()).getStockQuantity(), "주문 수량만큼 재고가 줄어야 한다");
+        assertEquals(8, em.find(Item.class, book2.getId()).getStockQuantity());
+    }
+
+    @Test
+    public void NDJSON_가져오기_재고부족() throws Exception {
+        //given
+        Member member = transactionTemplate.execute(status -> createMember("가져오기" + System.nanoTime()));
+        Book book = transactionTemplate.execute(status -> createBook("책1", 1000, 3));
+        String ndjson = "{\"memberId\":" + member.getId() + ",\"itemId\":" + book.getId() + ",\"count\":2}\n"
+                + "\n"
+                + "{\"memberId\":" + member.getId() + ",\"itemId\":" + book.getId() + ",\"count\":2}\n";
+        OrderImporter importer = new OrderImporter(orderService, objectMapper, 1);
+        List<OrderImportProgress> progress = new ArrayList<>();
+
+        try {
+            //when
+            long imported = importer.importNdjson(new StringReader(ndjson), progress::add);
+
+            //then
+            assertEquals(1, imported, "재고가 부족한 청크 전까지만 저장되어야 한다");
+            assertEquals(2, progress.size());
+            assertNull(progress.get(0).getError());
+            assertEquals(2, progress.get(1).getChunk());
+            assertEquals("수량 부족", progress.get(1).getError(), "실패한 청크의 오류를 알려야 한다");
+            assertEquals(1, (long) jdbcTemplate.queryForObject(
+                    "select count(*) from orders where member_id = ?", Long.class, member.getId()), "앞 청크는 커밋되어 있어야 한다");
+            assertEquals(1, (int) jdbcTemplate.queryForObject(
+                    "select stock_quantity from item where item_id = ?", Integer.class, book.getId()), "실패한 청크의 재고 변경은 롤백되어야 한다");
+        } finally {
+            deleteAll(member, book);
+        }
+    }
+
+    private void deleteAll(Member member, Book book) {
+        List<Long> deliveryIds = jdbcTemplate.queryForList(
+                "select delivery_id from orders where member_id = ?", Long.class, member.getId());
+        jdbcTemplate.update("delete from order_summary where member_id = ?", member.getId());
+        jdbcTemplate.update("delete from order_outbox where order_id in (select order_id from orders where member_id = ?)", member.getId());
+        jdbcTemplate.update("delete from order_item where item_id = ?", book.getId());
+        jdbcTemplate.update("delete from orders where member_id = ?", member.getId());
+        deliveryIds.forEach(id -> jdbcTemplate.update("delete from delivery where delivery_id = ?", id));
+        jdbcTemplate.update("delete from member where member_id = ?", member.getId());
+        jdbcTemplate.update("delete from item where item_id = ?", book.getId());
+    }
+
+    @Test
+    @Transactional
+    public void BOM_과_음수_수량() throws Exception {
+        //given
+        Member member = createMember("회원1");
+        Book book = createBook("책1", 1000, 10);
+        String bomCsv = "\uFEFF" + member.getId() + "," + book.getId() + ",1\n"
+                + "  " + member.getId() + "," + book.getId() + ",2  \n";
+        String negativeCsv = member.getId() + "," + book.getId() + ",1\n"
+                + member.getId() + "," + book.getId() + ",-5\n";
+        OrderImporter importer = new OrderImporter(orderService, objectMapper, 10);
+        List<OrderImportProgress> progress = new ArrayList<>();
+
+        //when
+        long bomImported = importer.importCsv(new StringReader(bomCsv), progress::add);
+        long negativeImported = importer.importCsv(new StringReader(negativeCsv), progress::add);
+
+        //then
+        assertEquals(2, bomImported, "BOM 이 붙은 첫 줄을 헤더로 건너뛰지 않아야 한다");
+        assertEquals(0, negativeImported, "수량이 0 이하인 줄이 있으면 저장하지 않아야 한다");
+        assertTrue(progress.get(1).getError().startsWith("2번째 줄"), progress.get(1).getError());
+        assertEquals(7, em.find(Item.class, book.getId()).getStockQuantity(), "음수 수량으로 재고가 늘어나면 안 된다");
+    }
+}
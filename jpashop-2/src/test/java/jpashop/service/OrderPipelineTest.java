@@ -0,0 +1,126 @@
+package jpashop.service;
+
+import jpashop.exception.NotEnoughStockException;
+import jpashop.exception.OrderQueueFullException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static java.util.stream.Collectors.toList;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class OrderPipelineTest {
+
+    private static final Map<Long, Integer> ITEM_COUNTS = Collections.singletonMap(1L, 1);
+
+    private final CountDownLatch entered = new CountDownLatch(1);
+    private final CountDownLatch release = new CountDownLatch(1);
+    private final List<Integer> batchSizes = new CopyOnWriteArrayList<>();
+    private final AtomicLong orderSequence = new AtomicLong();
+    private OrderPipeline pipeline;
+
+    /**
+     * 첫 묶음은 release 될 때까지 붙잡고 있고, 회원 id 가 음수인 주문은 재고 부족으로 실패한다.
+     */
+    private final OrderService orderService = new OrderService(null, null, null, null, null, null, null) {
+        @Override
+        public List<Long> orderAll(List<OrderTicket> tickets) {
+            batchSizes.add(tickets.size());
+            if (entered.getCount() > 0) {
+                entered.countDown();
+                await(release);
+            }
+            if (tickets.stream().anyMatch(t -> t.getMemberId() < 0)) {
+                throw new NotEnoughStockException("수량 부족");
+            }
+            return tickets.stream().map(t -> orderSequence.incrementAndGet()).collect(toList());
+        }
+
+        @Override
+        public Long order(Long memberId, Map<Long, Integer> itemCounts) {
+            if (memberId < 0) {
+                throw new NotEnoughStockException("수량 부족");
+            }
+            return orderSequence.incrementAndGet();
+        }
+    };
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        release.countDown();
+        pipeline.shutdown();
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Test
+    public void 묶어서_커밋() throws Exception {
+        //given
+        pipeline = new OrderPipeline(orderService, true, 10, 1, 10, 60_000);
+        OrderTicket first = pipeline.submit(1L, ITEM_COUNTS);
+        await(entered);
+
+        //when
+        List<OrderTicket> waiting = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            waiting.add(pipeline.submit(1L, ITEM_COUNTS));
+        }
+        release.countDown();
+        for (OrderTicket ticket : waiting) {
+            ticket.getResult().get(5, TimeUnit.SECONDS);
+        }
+
+        //then
+        assertEquals(OrderTicketStatus.PLACED, first.getStatus());
+        assertEquals(2, batchSizes.size(), "앞 묶음이 커밋되는 동안 쌓인 주문은 한 번에 커밋해야 한다");
+        assertEquals(4, (int) batchSizes.get(1));
+        assertEquals(OrderTicketStatus.PLACED, pipeline.findTicket(waiting.get(3).getTicketId()).getStatus());
+    }
+
+    @Test
+    public void 묶음_실패시_한건씩_커밋() throws Exception {
+        //given
+        pipeline = new OrderPipeline(orderService, true, 10, 1, 10, 60_000);
+        pipeline.submit(1L, ITEM_COUNTS);
+        await(entered);
+        OrderTicket ok = pipeline.submit(1L, ITEM_COUNTS);
+        OrderTicket fail = pipeline.submit(-1L, ITEM_COUNTS);
+
+        //when
+        release.countDown();
+        ok.getResult().get(5, TimeUnit.SECONDS);
+        assertThrows(Exception.class, () -> fail.getResult().get(5, TimeUnit.SECONDS));
+
+        //then
+        assertEquals(OrderTicketStatus.PLACED, ok.getStatus(), "실패한 주문과 같은 묶음이어도 나머지는 커밋되어야 한다");
+        assertEquals(OrderTicketStatus.FAILED, fail.getStatus());
+        assertEquals("수량 부족", fail.getError());
+    }
+
+    @Test
+    public void 대기열_가득참() throws Exception {
+        //given
+        pipeline = new OrderPipeline(orderService, true, 1, 1, 10, 60_000);
+        pipeline.submit(1L, ITEM_COUNTS);
+        await(entered);
+        pipeline.submit(1L, ITEM_COUNTS);
+
+        //when, then
+        assertThrows(OrderQueueFullException.class, () -> pipeline.submit(1L, ITEM_COUNTS));
+    }
+}
@@ -4,9 +4,14 @@ import jpashop.domain.Address;
 import jpashop.domain.Member;
 import jpashop.domain.Order;
 import jpashop.domain.OrderStatus;
+import jpashop.domain.OrderSummary;
 import jpashop.domain.item.Book;
 import jpashop.exception.NotEnoughStockException;
+import jpashop.repository.MemberNameIndex;
 import jpashop.repository.OrderRepository;
+import jpashop.repository.OrderSearch;
+import jpashop.sql.SqlStatementCounter;
+import jpashop.sql.SqlStatistics;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -15,6 +20,10 @@ import org.springframework.test.context.junit.jupiter.SpringExtension;
 import org.springframework.transaction.annotation.Transactional;
 
 import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
@@ -33,6 +42,9 @@ class OrderServiceTest {
     @Autowired
     OrderRepository orderRepository;
 
+    @Autowired
+    MemberNameIndex memberNameIndex;
+
     private Book createBook(String name, int price, int stockQuantity) {
         Book book = new Book();
         book.setName(name);
@@ -67,6 +79,7 @@ class OrderServiceTest {
         assertEquals(1, getOrder.getOrderItems().size(), 1, "주문한 상품 종류 수가 일치해야 한다");
         assertEquals(1000 * orderCount, getOrder.getTotalPrice(), "주문 가격은 가격 * 수량이다");
         assertEquals(8, book.getStockQuantity(), "주문 수량만큼 아이템의 재고가 줄어들어야 한다");
+        assertEquals(1L, (long) book.getVersion(), "재고를 줄이면 상품 버전도 올라가야 한다");
     }
 
     @Test
@@ -100,4 +113,118 @@ class OrderServiceTest {
         //then
         assertThrows(NotEnoughStockException.class, () -> {orderService.order(member.getId(), book.getId(), orderCount);});
     }
-}
\ No newline at end of file
+
+    @Test
+    public void 주문요약_갱신() throws Exception {
+        //given
+        Member member = createMember("회원1", "서울", "가", "123");
+        Book book = createBook("책1", 1000, 10);
+
+        //when
+        Long orderId = orderService.order(member.getId(), book.getId(), 2);
+        orderService.cancalOrder(orderId);
+        em.flush();
+        em.clear();
+
+        //then
+        List<OrderSummary> summaries = em.createQuery("select s from OrderSummary s where s.orderId = :orderId", OrderSummary.class)
+                .setParameter("orderId", orderId)
+                .getResultList();
+        assertEquals(1, summaries.size(), "주문상품 한 건당 요약 row 가 하나씩 있어야 한다");
+        assertEquals("책1", summaries.get(0).getItemName());
+        assertEquals(2, summaries.get(0).getCount());
+        assertEquals(OrderStatus.CANCEL, summaries.get(0).getOrderStatus(), "주문 취소가 요약에도 반영되어야 한다");
+    }
+
+    @Test
+    public void 주문검색_쿼리수() throws Exception {
+        //given
+        //다른 테스트가 커밋한 주문이 섞이지 않도록 이 테스트 회원 이름으로만 검색한다.
+        String memberName = "쿼리수" + System.nanoTime();
+        Book book = createBook("책1", 1000, 10);
+        for (int i = 0; i < 3; i++) {
+            Member member = createMember(memberName + "-" + i, "서울", "가", "123");
+            orderService.order(member.getId(), book.getId(), 1);
+        }
+        em.flush();
+        //em 으로 넣은 회원은 MemberService 를 거치지 않으므로 색인을 다시 만든다. 색인을 읽는 쿼리는 세지 않는다.
+        memberNameIndex.rebuild();
+        OrderSearch orderSearch = new OrderSearch();
+        orderSearch.setMemberName(memberName);
+        em.clear();
+
+        //when
+        List<Order> orders = new ArrayList<>();
+        SqlStatistics search = SqlStatementCounter.count(() -> orders.addAll(orderService.findOrders(orderSearch)));
+        SqlStatistics lazyLoading = SqlStatementCounter.count(() -> orders.forEach(o -> o.getMember().getName()));
+
+        //then
+        assertEquals(3, orders.size());
+        assertEquals(1, search.getStatementCount(), "주문 검색은 쿼리 한 번");
+        assertEquals(1, lazyLoading.getStatementCount(), "회원 지연 로딩은 batch fetch 로 주문 수와 상관없이 한 번");
+        assertEquals(1, lazyLoading.getMaxRepeat(), "같은 select 가 반복되면 N+1 이다");
+    }
+
+    @Test
+    public void 여러상품_주문() throws Exception {
+        //given
+        Member member = createMember("회원1", "서울", "가", "123");
+        Book book1 = createBook("책1", 1000, 10);
+        Book book2 = createBook("책2", 2000, 10);
+        Book book3 = createBook("책3", 3000, 10);
+        em.flush();
+        Map<Long, Integer> itemCounts = new HashMap<>();
+        itemCounts.put(book3.getId(), 3);
+        itemCounts.put(book1.getId(), 1);
+        itemCounts.put(book2.getId(), 2);
+
+        //when
+        Long[] orderId = new Long[1];
+        SqlStatistics statistics = SqlStatementCounter.count(() -> {
+            orderId[0] = orderService.order(member.getId(), itemCounts);
+            em.flush();
+        });
+
+        //then
+        Order order = orderRepository.findOne(orderId[0]);
+        assertEquals(3, order.getOrderItems().size());
+        assertEquals(1000 + 2000 * 2 + 3000 * 3, order.getTotalPrice());
+        assertEquals(9, book1.getStockQuantity());
+        assertEquals(7, book3.getStockQuantity());
+        assertEquals(1, statistics.getCountStartingWith("select"), "상품은 in 쿼리 한 번으로 잠그고 읽는다 (회원은 영속성 컨텍스트에 있음)");
+        assertEquals(1, statistics.getCountStartingWith("insert into order_item"), "주문상품 insert 는 batch 한 번");
+        assertEquals(1, statistics.getCountStartingWith("update item"), "재고 update 도 batch 한 번");
+    }
+
+    @Test
+    public void 여러상품_주문_재고부족() throws Exception {
+        //given
+        Member member = createMember("회원1", "서울", "가", "123");
+        Book book1 = createBook("책1", 1000, 10);
+        Book book2 = createBook("책2", 2000, 1);
+        Map<Long, Integer> itemCounts = new HashMap<>();
+        itemCounts.put(book1.getId(), 1);
+        itemCounts.put(book2.getId(), 2);
+
+        //then
+        assertThrows(NotEnoughStockException.class, () -> orderService.order(member.getId(), itemCounts));
+    }
+
+    @Test
+    public void 수량이_0_이하면_주문하지_않음() throws Exception {
+        //given
+        Member member = createMember("회원1", "서울", "가", "123");
+        Book book1 = createBook("책1", 1000, 10);
+        Book book2 = createBook("책2", 2000, 10);
+        Map<Long, Integer> itemCounts = new HashMap<>();
+        itemCounts.put(book1.getId(), 1);
+        itemCounts.put(book2.getId(), -3);
+
+        //when, then
+        assertThrows(IllegalArgumentException.class, () -> orderService.order(member.getId(), book1.getId(), 0));
+        assertThrows(IllegalArgumentException.class, () -> orderService.order(member.getId(), itemCounts));
+        em.flush();
+        em.clear();
+        assertEquals(10, em.find(Book.class, book2.getId()).getStockQuantity(), "음수 수량으로 재고가 늘어나면 안 된다");
+    }
+}
@@ -0,0 +1,162 @@
+package jpashop.service;
+
+import jpashop.domain.Address;
+import jpashop.domain.Member;
+import jpashop.domain.item.Book;
+import jpashop.exception.NotEnoughStockException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * 장부는 커밋된 재고를 새 트랜잭션에서 읽기 때문에 테스트 트랜잭션 없이 데이터를 커밋해 두고 확인한다.
+ */
+@ExtendWith(SpringExtension.class)
+@SpringBootTest
+class StockLedgerTest {
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    OrderService orderService;
+
+    @Autowired
+    ItemService itemService;
+
+    @Autowired
+    StockLedger stockLedger;
+
+    @Autowired
+    TransactionTemplate transactionTemplate;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    private Member member;
+    private Book book;
+
+    @BeforeEach
+    void setUp() {
+        member = transactionTemplate.execute(status -> {
+            Member member = new Member();
+            member.setName("장부" + System.nanoTime());
+            member.setAddress(new Address("서울", "가", "123"));
+            em.persist(member);
+            return member;
+        });
+        book = transactionTemplate.execute(status -> {
+            Book book = new Book();
+            book.setName("책1");
+            book.setPrice(1000);
+            book.setStockQuantity(10);
+            em.persist(book);
+            return book;
+        });
+    }
+
+    @AfterEach
+    void tearDown() {
+        List<Long> deliveryIds = jdbcTemplate.queryForList(
+                "select delivery_id from orders where member_id = ?", Long.class, member.getId());
+        jdbcTemplate.update("delete from stock_journal where item_id = ?", book.getId());
+        jdbcTemplate.update("delete from order_summary where member_id = ?", member.getId());
+        jdbcTemplate.update("delete from order_outbox where order_id in (select order_id from orders where member_id = ?)", member.getId());
+        jdbcTemplate.update("delete from order_item where item_id = ?", book.getId());
+        jdbcTemplate.update("delete from orders where member_id = ?", member.getId());
+        deliveryIds.forEach(id -> jdbcTemplate.update("delete from delivery where delivery_id = ?", id));
+        jdbcTemplate.update("delete from member where member_id = ?", member.getId());
+        jdbcTemplate.update("delete from item where item_id = ?", book.getId());
+    }
+
+    private int stockQuantity() {
+        return jdbcTemplate.queryForObject("select stock_quantity from item where item_id = ?", Integer.class, book.getId());
+    }
+
+    @Test
+    public void 재고장부_주문() throws Exception {
+        //given
+        stockLedger.cover(book.getId());
+
+        //when
+        Long orderId = orderService.order(member.getId(), book.getId(), 3);
+        orderService.order(member.getId(), book.getId(), 4);
+
+        //then
+        assertEquals(3, stockLedger.available(book.getId()), "장부에서 바로 재고가 줄어야 한다");
+        assertEquals(10, stockQuantity(), "item 테이블은 flush 전까지 그대로");
+        assertThrows(NotEnoughStockException.class, () -> orderService.order(member.getId(), book.getId(), 4));
+        assertEquals(3, stockLedger.available(book.getId()), "실패한 주문은 장부에서 빼지 않는다");
+
+        //when
+        int flushed = stockLedger.flush();
+
+        //then
+        assertEquals(2, flushed);
+        assertEquals(3, stockQuantity(), "flush 후 변경분이 item 테이블에 반영되어야 한다");
+
+        //when
+        orderService.cancalOrder(orderId);
+
+        //then
+        assertEquals(6, stockLedger.available(book.getId()), "주문 취소는 장부에 바로 돌려놓는다");
+        assertEquals(3, stockQuantity(), "item 테이블은 flush 만 바꾼다");
+
+        //when
+        stockLedger.flush();
+
+        //then
+        assertEquals(6, stockQuantity());
+    }
+
+    @Test
+    public void 장부는_커밋된_재고로_만든다() throws Exception {
+        //given
+        Long orderId = orderService.order(member.getId(), book.getId(), 3);
+        stockLedger.cover(book.getId());
+
+        //when
+        orderService.cancalOrder(orderId);
+
+        //then
+        assertEquals(10, stockLedger.available(book.getId()), "취소 트랜잭션의 커밋 전 변경분이 장부에 섞이면 취소 수량이 두 번 더해진다");
+        stockLedger.flush();
+        assertEquals(10, stockQuantity());
+    }
+
+    @Test
+    public void 재고_덮어쓰기() throws Exception {
+        //given
+        stockLedger.cover(book.getId());
+        orderService.order(member.getId(), book.getId(), 2);
+
+        //when
+        itemService.updateItem(book.getId(), "책1", 1000, 50);
+        int flushed = stockLedger.flush();
+
+        //then
+        assertEquals(0, flushed, "덮어쓰기 전 변경분은 새 재고에 더하지 않는다");
+        assertEquals(50, stockQuantity());
+        assertEquals(50, stockLedger.available(book.getId()), "같은 장부를 새 재고로 다시 만들어야 한다");
+
+        //when
+        orderService.order(member.getId(), book.getId(), 5);
+        stockLedger.flush();
+
+        //then
+        assertEquals(45, stockQuantity());
+        assertEquals(45, stockLedger.available(book.getId()));
+    }
+}